@@ -0,0 +1,88 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Saves snapshots to a file on a background thread. changed() only sets a flag, so it is cheap enough to
+// call on every edit: at most one snapshot is taken per delay, however many changes happened in it. The
+// snapshot is taken on the thread that owns the state (the FX thread for the window) and written by the
+// saver's own thread to a temporary file that is then renamed over the save file, so a crash mid-write
+// leaves the previous save intact.
+public class AutoSaver implements Closeable {
+    private final Path file;
+    private final Path temporary;
+    private final Supplier<byte[]> snapshot;
+    private final Executor stateThread;
+    private final long delayMillis;
+    private final ScheduledExecutorService writer;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public AutoSaver(File file, Supplier<byte[]> snapshot, Executor stateThread, long delayMillis){
+        this.file = file.toPath();
+        this.temporary = new File(file.getPath() + ".tmp").toPath();
+        this.snapshot = snapshot;
+        this.stateThread = stateThread;
+        this.delayMillis = delayMillis;
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static byte[] load(File file) throws IOException {
+        return file.isFile() ? Files.readAllBytes(file.toPath()) : null;
+    }
+
+    public void changed(){
+        if (scheduled.compareAndSet(false, true))
+            writer.schedule(() -> stateThread.execute(() -> {
+                scheduled.set(false);
+                if (writer.isShutdown())
+                    return;
+                byte[] data = snapshot.get();
+                writer.execute(() -> write(data));
+            }), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Takes a snapshot on the calling thread, which must own the state, and waits until it is on disk.
+    public void flush(){
+        byte[] data = snapshot.get();
+        try {
+            writer.submit(() -> write(data)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Autosave failed: " + e.getCause());
+        }
+    }
+
+    @Override
+    public void close(){
+        flush();
+        writer.shutdown();
+    }
+
+    private void write(byte[] data){
+        try {
+            Files.write(temporary, data);
+            try {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Autosave failed: " + e.getMessage());
+        }
+    }
+}
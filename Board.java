@@ -0,0 +1,157 @@
+// The state of one game: a puzzle plus the values entered so far, stored row by row in a flat int[]
+// (0 for an empty cell). It has no JavaFX dependency, so the rules can run on servers and in tools; the
+// MathDoku window is a view over it.
+public class Board {
+    public static final int ROW_CHANGED = ConflictTracker.ROW_CHANGED;
+    public static final int COL_CHANGED = ConflictTracker.COL_CHANGED;
+    public static final int CAGE_CHANGED = 4;
+
+    private final Puzzle puzzle;
+    private final int size;
+    private final int[] values;
+    private final int[][] cageCells;
+    private final boolean[] cageMistake;
+    // Looked up the first time a cage is partly filled, so opening a board builds no tables.
+    private final CageCombinations[] combinations;
+    private final ConflictTracker tracker;
+
+    public Board(Puzzle puzzle){
+        if (puzzle.getSize() > 32)
+            throw new IllegalArgumentException("Grids larger than 32x32 are not supported");
+        this.puzzle = puzzle;
+        this.size = puzzle.getSize();
+        this.values = new int[size * size];
+        this.tracker = new ConflictTracker(size);
+        this.cageCells = new int[puzzle.getCageCount()][];
+        this.cageMistake = new boolean[cageCells.length];
+        this.combinations = new CageCombinations[cageCells.length];
+        for (int c = 0; c < cageCells.length; c++) {
+            cageCells[c] = puzzle.getCage(c).getCells();
+            tracker.addCage(false);
+        }
+    }
+
+    // Returns ROW_CHANGED, COL_CHANGED and CAGE_CHANGED flags for the parts of the board around the
+    // cell whose mistake state flipped.
+    public int setValue(int row, int col, int value){
+        if (value < 0 || value > size)
+            throw new IllegalArgumentException("Value " + value + " does not fit a " + size + "x" + size + " grid");
+        int cell = row * size + col;
+        int old = values[cell];
+        if (old == value)
+            return 0;
+        values[cell] = value;
+        int changed = tracker.setValue(row, col, old, value);
+        int cage = puzzle.getCageOf(cell);
+        if (cage != -1) {
+            boolean filled = isCageFilled(cage);
+            boolean correct = filled && isCageCorrect(cage);
+            tracker.setCageCorrect(cage, correct);
+            boolean mistake = filled ? !correct : !combinations(cage).isFeasible(values, cageCells[cage]);
+            if (cageMistake[cage] != mistake) {
+                cageMistake[cage] = mistake;
+                changed |= CAGE_CHANGED;
+            }
+        }
+        return changed;
+    }
+
+    public int getValue(int row, int col){
+        return values[row * size + col];
+    }
+
+    public int[] getValues(){
+        return values.clone();
+    }
+
+    public void clear(){
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++)
+                setValue(row, col, 0);
+    }
+
+    public Puzzle getPuzzle(){
+        return puzzle;
+    }
+
+    public int getSize(){
+        return size;
+    }
+
+    public boolean isCageFilled(int cage){
+        for (int cell : cageCells[cage])
+            if (values[cell] == 0)
+                return false;
+        return true;
+    }
+
+    // Only a filled cage can be correct.
+    public boolean isCageCorrect(int cage){
+        PuzzleCage puzzleCage = puzzle.getCage(cage);
+        long sum = 0;
+        long product = 1;
+        int max = 0;
+        for (int cell : cageCells[cage]) {
+            int value = values[cell];
+            if (value == 0)
+                return false;
+            sum += value;
+            product *= value;
+            if (value > max)
+                max = value;
+        }
+        return puzzleCage.getOp().check(puzzleCage.getTarget(), sum, product, max);
+    }
+
+    private CageCombinations combinations(int cage){
+        if (combinations[cage] == null)
+            combinations[cage] = CageCombinations.of(puzzle.getCage(cage), size);
+        return combinations[cage];
+    }
+
+    // Digits that do not already appear in the cell's row or column, as a mask with bit v-1 for v.
+    public int getCandidates(int row, int col){
+        int full = size == 32 ? -1 : (1 << size) - 1;
+        return full & ~(tracker.getRowMask(row) | tracker.getColMask(col));
+    }
+
+    // A filled cage that is wrong, or a partly filled one whose digits no combination of the cage's
+    // operation can complete.
+    public boolean hasCageMistake(int cage){
+        return cageMistake[cage];
+    }
+
+    // True when a row or column repeats a value or a cage has a mistake.
+    public boolean hasMistakes(){
+        if (!tracker.areRowsAndColsCorrect())
+            return true;
+        for (boolean mistake : cageMistake)
+            if (mistake)
+                return true;
+        return false;
+    }
+
+    public boolean hasRowOrColMistake(int row, int col){
+        return tracker.hasRowOrColMistake(row, col);
+    }
+
+    public boolean isRowCorrect(int row){
+        return tracker.isRowCorrect(row);
+    }
+
+    public boolean isColCorrect(int col){
+        return tracker.isColCorrect(col);
+    }
+
+    public boolean areRowsAndColsCorrect(){
+        return tracker.areRowsAndColsCorrect();
+    }
+
+    public boolean areCagesCorrect(){
+        return tracker.areCagesCorrect();
+    }
+
+    public boolean isGameWon(){
+        return tracker.isGameWon();
+    }
+}
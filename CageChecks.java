@@ -0,0 +1,105 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+// The two cage checks benchmarks.CageCheckBenchmark compares, one BooleanSupplier per cage of a solved
+// puzzle. Like ValidationPaths they stay in the default package next to the game classes.
+public class CageChecks {
+    public static Map<String, BooleanSupplier[]> create(String fileName){
+        File file = new File(fileName);
+        Puzzle puzzle;
+        try {
+            puzzle = Puzzle.fromFile(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int[] values = new Solver(puzzle).solve();
+        if (values == null)
+            throw new IllegalArgumentException(file + " has no solution to check against");
+
+        BooleanSupplier[] stringParsing = new BooleanSupplier[puzzle.getCageCount()];
+        BooleanSupplier[] preParsed = new BooleanSupplier[puzzle.getCageCount()];
+        for (int c = 0; c < stringParsing.length; c++) {
+            PuzzleCage cage = puzzle.getCage(c);
+            String operation = cage.getOperation();
+            Operation op = cage.getOp();
+            int target = cage.getTarget();
+            int[] cageValues = new int[cage.getCellCount()];
+            for (int i = 0; i < cage.getCellCount(); i++)
+                cageValues[i] = values[cage.getCell(i)];
+            stringParsing[c] = () -> legacyIsCageCorrect(operation, cageValues);
+            preParsed[c] = () -> isCageCorrect(op, target, cageValues);
+        }
+
+        Map<String, BooleanSupplier[]> checks = new LinkedHashMap<>();
+        checks.put("stringParsing", stringParsing);
+        checks.put("preParsed", preParsed);
+        return checks;
+    }
+
+    private static boolean isCageCorrect(Operation op, int target, int[] values){
+        long sum = 0;
+        long product = 1;
+        int max = 0;
+        for (int value : values) {
+            sum += value;
+            product *= value;
+            if (value > max)
+                max = value;
+        }
+        return op.check(target, sum, product, max);
+    }
+
+    // The check MathDoku.Cage.isCageCorrect() used to run, kept here as the baseline.
+    private static boolean legacyIsCageCorrect(String operation, int[] values){
+        String finalString = "";
+        char[] chars = new char[operation.length()];
+        operation.getChars(0, operation.length(), chars, 0);
+        for (char ch : chars){
+            if (isNumeric(Character.toString(ch)))
+                finalString += ch;
+            else
+                finalString = finalString + " " + ch;
+        }
+        finalString += " c";
+        String[] whatToDo = finalString.split(" ");
+        int target = Integer.parseInt(whatToDo[0]);
+        String op = whatToDo[1].equals("c") ? " " : whatToDo[1];
+        int result = 0;
+        if (op.equals(" "))
+            result = values[0];
+        if (op.equals("+"))
+            for (int value : values)
+                result += value;
+        if (op.equals("-") || op.equals("%") || op.equals("\u00f7")) {
+            int[] orderedValues = values.clone();
+            Arrays.sort(orderedValues);
+            result = orderedValues[values.length - 1];
+            for (int i = values.length - 2; i >= 0; i--) {
+                if (op.equals("-"))
+                    result -= orderedValues[i];
+                else
+                    result /= orderedValues[i];
+            }
+        }
+        if (op.equals("x")) {
+            result = 1;
+            for (int value : values)
+                result *= value;
+        }
+        return result == target;
+    }
+
+    private static boolean isNumeric(String str){
+        try {
+            Integer.parseInt(str);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
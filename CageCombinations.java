@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Every multiset of digits that satisfies a cage operation, for one (operation, target, cell count, grid
+// size). Tables are built on first use and shared by all cages and puzzles with the same key, so a puzzle
+// with twenty "2%" cages builds one. Besides the combinations a table keeps every part of them in a hash
+// set, which makes "can the digits entered so far in a partly filled cage still be completed?" a single
+// lookup. Each combination is its digits in ascending order, six bits each, packed into a long.
+//
+// The check looks at digits only, not at where they sit: a cage that passes may still be impossible
+// because of its rows and columns, but one that fails can never be finished.
+public final class CageCombinations {
+    // Past these limits a table is not kept (see isComplete); they only bite on large cages of large grids.
+    public static final int MAX_CELLS = 10;
+    private static final long MAX_STEPS = 1L << 18;
+    private static final int MAX_COMBINATIONS = 1 << 14;
+    private static final int MAX_PARTS = 1 << 15;
+
+    private static final Map<Long, CageCombinations> TABLES = new ConcurrentHashMap<>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private final int size;
+    private final int cells;
+    // False when the cage has too many combinations to keep; such a table rules nothing out.
+    private final boolean complete;
+    private final long[] combinations;
+    private final int digits;
+    // Open-addressing set of every non-empty part of a combination, or null when there were too many.
+    private final long[] parts;
+
+    private CageCombinations(Operation op, int target, int cells, int size){
+        this.size = size;
+        this.cells = cells;
+        Enumeration enumeration = new Enumeration(op, target, cells, size);
+        if (cells <= MAX_CELLS)
+            enumeration.enumerate(0, 1, 0, 1, 0);
+        complete = cells <= MAX_CELLS && enumeration.steps <= MAX_STEPS && enumeration.count <= MAX_COMBINATIONS;
+        combinations = complete ? Arrays.copyOf(enumeration.found, enumeration.count) : new long[0];
+        int union = 0;
+        for (long combination : combinations)
+            for (long rest = combination; rest != 0; rest >>>= 6)
+                union |= 1 << ((int) (rest & 63) - 1);
+        digits = complete ? union : size == 32 ? -1 : (1 << size) - 1;
+        parts = complete ? buildParts(combinations) : null;
+    }
+
+    public static CageCombinations of(PuzzleCage cage, int size){
+        return of(cage.getOp(), cage.getTarget(), cage.getCellCount(), size);
+    }
+
+    public static CageCombinations of(Operation op, int target, int cells, int size){
+        long key = (long) target << 20 | (long) op.ordinal() << 16 | (long) Math.min(cells, 1023) << 6 | size;
+        CageCombinations table = TABLES.get(key);
+        if (table != null) {
+            HITS.incrementAndGet();
+            return table;
+        }
+        return TABLES.computeIfAbsent(key, k -> {
+            MISSES.incrementAndGet();
+            return new CageCombinations(op, target, cells, size);
+        });
+    }
+
+    public boolean isComplete(){
+        return complete;
+    }
+
+    public int getCount(){
+        return combinations.length;
+    }
+
+    // The digits of one combination in ascending order.
+    public int[] getCombination(int index){
+        int[] digits = new int[cells];
+        long combination = combinations[index];
+        for (int i = cells - 1; i >= 0; i--, combination >>>= 6)
+            digits[i] = (int) (combination & 63);
+        return digits;
+    }
+
+    // Every digit that appears in some combination, as a mask with bit v-1 for v; a cell of the cage can
+    // never hold anything else.
+    public int getDigits(){
+        return digits;
+    }
+
+    // Whether the values entered in the given cells (0 for empty) are part of some combination.
+    public boolean isFeasible(int[] values, int[] cageCells){
+        if (!complete)
+            return true;
+        int[] entered = new int[cageCells.length];
+        int count = 0;
+        for (int cell : cageCells)
+            if (values[cell] != 0)
+                entered[count++] = values[cell];
+        if (count == 0)
+            return combinations.length > 0;
+        Arrays.sort(entered, 0, count);
+        long key = 0;
+        for (int i = 0; i < count; i++)
+            key = key << 6 | entered[i];
+        if (parts != null)
+            return contains(parts, key);
+        for (long combination : combinations)
+            if (includes(combination, entered, count))
+                return true;
+        return false;
+    }
+
+    public long getMemoryBytes(){
+        return 64 + 8L * combinations.length + (parts == null ? 0 : 8L * parts.length);
+    }
+
+    public static int getTableCount(){
+        return TABLES.size();
+    }
+
+    public static long getHits(){
+        return HITS.get();
+    }
+
+    public static long getMisses(){
+        return MISSES.get();
+    }
+
+    // The tables built so far for one grid size.
+    public static long getMemoryBytes(int size){
+        long bytes = 0;
+        for (CageCombinations table : TABLES.values())
+            if (table.size == size)
+                bytes += table.getMemoryBytes();
+        return bytes;
+    }
+
+    public static int getTableCount(int size){
+        int count = 0;
+        for (CageCombinations table : TABLES.values())
+            if (table.size == size)
+                count++;
+        return count;
+    }
+
+    private static boolean includes(long combination, int[] entered, int count){
+        int i = count - 1;
+        for (long rest = combination; rest != 0 && i >= 0; rest >>>= 6) {
+            int digit = (int) (rest & 63);
+            if (digit == entered[i])
+                i--;
+            else if (digit < entered[i])
+                return false;
+        }
+        return i < 0;
+    }
+
+    private static long[] buildParts(long[] combinations){
+        Set<Long> found = new HashSet<>();
+        int[] digits = new int[MAX_CELLS];
+        for (long combination : combinations) {
+            int count = 0;
+            for (long rest = combination; rest != 0; rest >>>= 6)
+                count++;
+            long rest = combination;
+            for (int i = count - 1; i >= 0; i--, rest >>>= 6)
+                digits[i] = (int) (rest & 63);
+            if (!addParts(found, digits, count, 0, 0))
+                return null;
+        }
+        long[] table = new long[Integer.highestOneBit(Math.max(1, found.size()) * 2) * 2];
+        for (long key : found)
+            insert(table, key);
+        return table;
+    }
+
+    // The digits are in ascending order; every choice of how many of each run of equal digits to keep is
+    // a distinct part, packed the same way as a combination.
+    private static boolean addParts(Set<Long> found, int[] digits, int count, int from, long prefix){
+        if (from == count) {
+            if (prefix != 0)
+                found.add(prefix);
+            return found.size() <= MAX_PARTS;
+        }
+        int to = from;
+        while (to < count && digits[to] == digits[from])
+            to++;
+        long withDigit = prefix;
+        for (int kept = 0; kept <= to - from; kept++) {
+            if (!addParts(found, digits, count, to, withDigit))
+                return false;
+            withDigit = withDigit << 6 | digits[from];
+        }
+        return true;
+    }
+
+    private static int slot(long[] table, long key){
+        return (int) ((key * 0x9e3779b97f4a7c15L) >>> 32) & (table.length - 1);
+    }
+
+    private static void insert(long[] table, long key){
+        int i = slot(table, key);
+        while (table[i] != 0 && table[i] != key)
+            i = (i + 1) & (table.length - 1);
+        table[i] = key;
+    }
+
+    private static boolean contains(long[] table, long key){
+        for (int i = slot(table, key); table[i] != 0; i = (i + 1) & (table.length - 1))
+            if (table[i] == key)
+                return true;
+        return false;
+    }
+
+    // Walks the multisets in ascending digit order, pruning sums and products that can no longer reach
+    // the target. Subtraction and division cannot be pruned this way, so their walks are capped.
+    private static final class Enumeration {
+        final Operation op;
+        final int target;
+        final int cells;
+        final int size;
+        long[] found = new long[16];
+        int count = 0;
+        long steps = 0;
+
+        Enumeration(Operation op, int target, int cells, int size){
+            this.op = op;
+            this.target = target;
+            this.cells = cells;
+            this.size = size;
+        }
+
+        void enumerate(int index, int least, long sum, long product, long packed){
+            if (++steps > MAX_STEPS || count > MAX_COMBINATIONS)
+                return;
+            if (index == cells) {
+                if (op.check(target, sum, product, (int) (packed & 63))) {
+                    if (count == found.length)
+                        found = Arrays.copyOf(found, 2 * count);
+                    found[count++] = packed;
+                }
+                return;
+            }
+            int left = cells - index;
+            boolean adding = op == Operation.ADD || op == Operation.NONE;
+            if (adding && sum + (long) size * left < target)
+                return;
+            for (int digit = least; digit <= size; digit++) {
+                if (adding && sum + (long) digit * left > target)
+                    break;
+                if (op == Operation.MULTIPLY) {
+                    if (target % (product * digit) != 0)
+                        continue;
+                    if (product * Math.pow(digit, left) > target)
+                        break;
+                }
+                enumerate(index + 1, digit, sum + digit, product * digit, packed << 6 | digit);
+                if (steps > MAX_STEPS || count > MAX_COMBINATIONS)
+                    return;
+            }
+        }
+    }
+
+    // Reports, per grid size, how many tables the cages of generated puzzles need, what they take in
+    // memory and how often a cage finds its table already built.
+    public static void main(String[] args) throws IOException {
+        int puzzles = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        System.out.printf("%-5s %8s %8s %8s %10s %12s %10s%n", "size", "puzzles", "cages", "tables", "hit rate",
+                "memory KB", "build ms");
+        for (int size = 4; size <= 12; size++) {
+            long hits = getHits();
+            long misses = getMisses();
+            long cages = 0;
+            long buildNanos = 0;
+            for (int p = 0; p < puzzles; p++) {
+                Puzzle puzzle = new PuzzleGenerator(size, seed + p).generateLayout(new int[] {1, 2, 2, 2, 3, 3, 3, 4, 4});
+                long start = System.nanoTime();
+                for (int c = 0; c < puzzle.getCageCount(); c++)
+                    of(puzzle.getCage(c), size);
+                buildNanos += System.nanoTime() - start;
+                cages += puzzle.getCageCount();
+            }
+            long lookups = getHits() - hits + getMisses() - misses;
+            System.out.printf("%2dx%-2d %8d %8d %8d %9.1f%% %12.1f %10.1f%n", size, size, puzzles, cages,
+                    getTableCount(size), 100.0 * (getHits() - hits) / lookups, getMemoryBytes(size) / 1024.0,
+                    buildNanos / 1e6);
+        }
+    }
+}
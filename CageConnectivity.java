@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+// Union-find over the cells of one cage. Membership is looked up through a grid-sized slot table that
+// is stamped per cage instead of cleared, so checking a cage costs time linear in its size however
+// large the grid is. Only neighbours in the same row or column count; the last cell of one row is not
+// next to the first cell of the following row.
+public class CageConnectivity {
+    private static final int[] NONE = new int[0];
+
+    private int[] slot = new int[0];
+    private int[] stamp = new int[0];
+    private int currentStamp = 0;
+    private int[] parent = new int[16];
+    private int[] componentSize = new int[16];
+
+    public boolean isConnected(int[] cells, int size){
+        return findDisconnected(cells, size).length == 0;
+    }
+
+    // Returns the cells that are not in the largest connected group of the cage, or an empty array when
+    // the whole cage is connected.
+    public int[] findDisconnected(int[] cells, int size){
+        int count = cells.length;
+        if (count <= 1)
+            return NONE;
+        prepare(size * size, count);
+        for (int i = 0; i < count; i++) {
+            slot[cells[i]] = i;
+            stamp[cells[i]] = currentStamp;
+            parent[i] = i;
+            componentSize[i] = 1;
+        }
+        int components = count;
+        for (int i = 0; i < count; i++) {
+            int cell = cells[i];
+            if (cell % size != size - 1 && stamp[cell + 1] == currentStamp && union(i, slot[cell + 1]))
+                components--;
+            if (cell + size < size * size && stamp[cell + size] == currentStamp && union(i, slot[cell + size]))
+                components--;
+        }
+        if (components == 1)
+            return NONE;
+
+        int largest = -1;
+        for (int i = 0; i < count; i++)
+            if (parent[i] == i && (largest == -1 || componentSize[i] > componentSize[largest]))
+                largest = i;
+        int[] disconnected = new int[count - componentSize[largest]];
+        int index = 0;
+        for (int i = 0; i < count; i++)
+            if (find(i) != largest)
+                disconnected[index++] = cells[i];
+        return disconnected;
+    }
+
+    private void prepare(int cellCount, int count){
+        if (slot.length < cellCount) {
+            slot = new int[cellCount];
+            stamp = new int[cellCount];
+            currentStamp = 0;
+        }
+        if (++currentStamp == 0) {
+            Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+        if (parent.length < count) {
+            parent = new int[count];
+            componentSize = new int[count];
+        }
+    }
+
+    private int find(int i){
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private boolean union(int a, int b){
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB)
+            return false;
+        if (componentSize[rootA] < componentSize[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        componentSize[rootA] += componentSize[rootB];
+        return true;
+    }
+}
@@ -0,0 +1,257 @@
+import javafx.animation.AnimationTimer;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.BitSet;
+
+// Draws a whole board on one Canvas instead of a node per cell, for boards where thousands of text fields
+// make layout and memory the bottleneck. Changes only mark cells dirty and the next frame repaints just
+// those cells. Every cell paints its background, value, cage label and borders inside its own rectangle,
+// so it can be redrawn without touching its neighbours.
+public class CanvasGrid extends Pane {
+    public interface Editor {
+        void edit(int cell, int value);
+    }
+
+    private static final int TOP = 1;
+    private static final int RIGHT = 2;
+    private static final int BOTTOM = 4;
+    private static final int LEFT = 8;
+    private static final double THIN = 1;
+    private static final double THICK = 2;
+    private static final double[] FONT_SCALES = {0.4, 0.5, 0.6};
+
+    private final Board board;
+    private final Editor editor;
+    private final int size;
+    private final Canvas canvas = new Canvas();
+    // The operation shown in a cell, for the first cell of each cage.
+    private final String[] labels;
+    // TOP, RIGHT, BOTTOM and LEFT bits for the sides a cell shares with a cell of the same cage.
+    private final int[] joined;
+    private final BitSet errors = new BitSet();
+    private final BitSet dirty = new BitSet();
+    private final AnimationTimer repaint = new AnimationTimer() {
+        @Override
+        public void handle(long now){
+            paintDirty();
+        }
+    };
+    private boolean scheduled = false;
+    private double width = 0;
+    private double height = 0;
+    private double fontScale = FONT_SCALES[2];
+    private Font valueFont;
+    private Font labelFont;
+    private int selected = -1;
+    // Whether the next digit typed may extend the value just typed, as in a 12x12 grid "1" then "2".
+    private boolean extendable = false;
+
+    public CanvasGrid(Board board, Editor editor){
+        this.board = board;
+        this.editor = editor;
+        this.size = board.getSize();
+        Puzzle puzzle = board.getPuzzle();
+        labels = new String[size * size];
+        for (int c = 0; c < puzzle.getCageCount(); c++)
+            labels[puzzle.getCage(c).getCell(0)] = puzzle.getCage(c).getOperation();
+        joined = new int[size * size];
+        for (int cell = 0; cell < joined.length; cell++) {
+            int row = cell / size;
+            int col = cell % size;
+            if (row > 0 && puzzle.inSameCage(cell, cell - size))
+                joined[cell] |= TOP;
+            if (col < size - 1 && puzzle.inSameCage(cell, cell + 1))
+                joined[cell] |= RIGHT;
+            if (row < size - 1 && puzzle.inSameCage(cell, cell + size))
+                joined[cell] |= BOTTOM;
+            if (col > 0 && puzzle.inSameCage(cell, cell - 1))
+                joined[cell] |= LEFT;
+        }
+        getChildren().add(canvas);
+        setPrefSize(size * 28, size * 28);
+        setFocusTraversable(true);
+        setOnMouseClicked(this::click);
+        setOnKeyPressed(this::key);
+    }
+
+    // Called after the board's value for a cell has changed.
+    public void valueChanged(int cell){
+        markDirty(cell);
+    }
+
+    public void setError(int cell, boolean error){
+        if (errors.get(cell) != error) {
+            errors.set(cell, error);
+            markDirty(cell);
+        }
+    }
+
+    // 0, 1 or 2 for small, medium and large; text is sized relative to the cells.
+    public void setFontSize(int fontSize){
+        fontScale = FONT_SCALES[fontSize];
+        resizeCanvas(width, height);
+    }
+
+    public int getSelected(){
+        return selected;
+    }
+
+    public void select(int cell){
+        if (selected != -1)
+            markDirty(selected);
+        selected = cell;
+        extendable = false;
+        if (cell != -1)
+            markDirty(cell);
+    }
+
+    // A whole value from the number pad, or "<=" to clear the selected cell.
+    public void type(String key){
+        if (selected == -1)
+            return;
+        extendable = false;
+        int value = key.equals("<=") ? 0 : Integer.parseInt(key);
+        if (value <= size)
+            editor.edit(selected, value);
+    }
+
+    public void typeDigit(int digit){
+        if (selected == -1)
+            return;
+        int value = board.getValue(selected / size, selected % size) * 10 + digit;
+        if (!extendable || value > size)
+            value = digit;
+        if (value >= 1 && value <= size) {
+            editor.edit(selected, value);
+            extendable = true;
+        }
+    }
+
+    @Override
+    protected void layoutChildren(){
+        if (getWidth() != width || getHeight() != height)
+            resizeCanvas(getWidth(), getHeight());
+    }
+
+    private void resizeCanvas(double newWidth, double newHeight){
+        width = newWidth;
+        height = newHeight;
+        canvas.setWidth(width);
+        canvas.setHeight(height);
+        double cellHeight = height / size;
+        valueFont = Font.font(cellHeight * fontScale);
+        labelFont = Font.font(cellHeight * fontScale * 0.45);
+        dirty.set(0, size * size);
+        paintDirty();
+    }
+
+    private void click(MouseEvent e){
+        if (width == 0 || height == 0)
+            return;
+        int row = Math.min(size - 1, (int) (e.getY() * size / height));
+        int col = Math.min(size - 1, (int) (e.getX() * size / width));
+        select(row * size + col);
+        requestFocus();
+    }
+
+    private void key(KeyEvent e){
+        if (selected == -1)
+            return;
+        int row = selected / size;
+        int col = selected % size;
+        switch (e.getCode()) {
+            case BACK_SPACE:
+            case DELETE:
+                extendable = false;
+                editor.edit(selected, 0);
+                break;
+            case UP:
+                select(Math.max(0, row - 1) * size + col);
+                break;
+            case DOWN:
+                select(Math.min(size - 1, row + 1) * size + col);
+                break;
+            case LEFT:
+                select(row * size + Math.max(0, col - 1));
+                break;
+            case RIGHT:
+                select(row * size + Math.min(size - 1, col + 1));
+                break;
+            default:
+                String text = e.getText();
+                if (text == null || text.length() != 1 || !Character.isDigit(text.charAt(0)))
+                    return;
+                typeDigit(text.charAt(0) - '0');
+        }
+        e.consume();
+    }
+
+    private void markDirty(int cell){
+        dirty.set(cell);
+        if (!scheduled) {
+            scheduled = true;
+            repaint.start();
+        }
+    }
+
+    private void paintDirty(){
+        repaint.stop();
+        scheduled = false;
+        if (width == 0 || height == 0)
+            return;
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        for (int cell = dirty.nextSetBit(0); cell >= 0; cell = dirty.nextSetBit(cell + 1))
+            paintCell(g, cell);
+        dirty.clear();
+    }
+
+    // Cell edges are rounded to whole pixels so that neighbouring rectangles meet without overlapping.
+    private void paintCell(GraphicsContext g, int cell){
+        int row = cell / size;
+        int col = cell % size;
+        double x = Math.floor(col * width / size);
+        double y = Math.floor(row * height / size);
+        double w = Math.floor((col + 1) * width / size) - x;
+        double h = Math.floor((row + 1) * height / size) - y;
+
+        g.save();
+        g.beginPath();
+        g.rect(x, y, w, h);
+        g.clip();
+        g.setFill(errors.get(cell) ? Color.RED : cell == selected ? Color.LIGHTBLUE : Color.WHITE);
+        g.fillRect(x, y, w, h);
+
+        g.setFill(Color.BLACK);
+        double top = (joined[cell] & TOP) != 0 ? THIN : THICK;
+        double right = (joined[cell] & RIGHT) != 0 ? THIN : THICK;
+        double bottom = (joined[cell] & BOTTOM) != 0 ? THIN : THICK;
+        double left = (joined[cell] & LEFT) != 0 ? THIN : THICK;
+        g.fillRect(x, y, w, top);
+        g.fillRect(x + w - right, y, right, h);
+        g.fillRect(x, y + h - bottom, w, bottom);
+        g.fillRect(x, y, left, h);
+
+        if (labels[cell] != null) {
+            g.setFont(labelFont);
+            g.setTextAlign(TextAlignment.LEFT);
+            g.setTextBaseline(VPos.TOP);
+            g.fillText(labels[cell], x + left + 1, y + top + 1);
+        }
+        int value = board.getValue(row, col);
+        if (value != 0) {
+            g.setFont(valueFont);
+            g.setTextAlign(TextAlignment.CENTER);
+            g.setTextBaseline(VPos.CENTER);
+            g.fillText(Integer.toString(value), x + w / 2, y + h * 0.6);
+        }
+        g.restore();
+    }
+}
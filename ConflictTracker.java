@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+public class ConflictTracker {
+    public static final int ROW_CHANGED = 1;
+    public static final int COL_CHANGED = 2;
+
+    private final int size;
+    private final int[] rowCounts;
+    private final int[] colCounts;
+    private final int[] rowDuplicates;
+    private final int[] colDuplicates;
+    private final int[] rowMasks;
+    private final int[] colMasks;
+    private int badLines = 0;
+    private boolean[] cageCorrect = new boolean[16];
+    private int cageCount = 0;
+    private int incorrectCages = 0;
+
+    public ConflictTracker(int size){
+        this.size = size;
+        this.rowCounts = new int[size * (size + 1)];
+        this.colCounts = new int[size * (size + 1)];
+        this.rowDuplicates = new int[size];
+        this.colDuplicates = new int[size];
+        this.rowMasks = new int[size];
+        this.colMasks = new int[size];
+    }
+
+    // Returns which of the cell's row and column went from correct to wrong or back, as
+    // ROW_CHANGED | COL_CHANGED flags, so callers only repaint lines whose state flipped.
+    public int setValue(int row, int col, int old, int value){
+        if (old == value)
+            return 0;
+        boolean rowWasCorrect = rowDuplicates[row] == 0;
+        boolean colWasCorrect = colDuplicates[col] == 0;
+        if (old != 0) {
+            int rowCount = --rowCounts[row * (size + 1) + old];
+            if (rowCount == 1)
+                rowDuplicates[row]--;
+            else if (rowCount == 0)
+                rowMasks[row] &= ~(1 << (old - 1));
+            int colCount = --colCounts[col * (size + 1) + old];
+            if (colCount == 1)
+                colDuplicates[col]--;
+            else if (colCount == 0)
+                colMasks[col] &= ~(1 << (old - 1));
+        }
+        if (value != 0) {
+            if (++rowCounts[row * (size + 1) + value] == 2)
+                rowDuplicates[row]++;
+            if (++colCounts[col * (size + 1) + value] == 2)
+                colDuplicates[col]++;
+            rowMasks[row] |= 1 << (value - 1);
+            colMasks[col] |= 1 << (value - 1);
+        }
+        int changed = 0;
+        if (rowWasCorrect != (rowDuplicates[row] == 0)) {
+            badLines += rowWasCorrect ? 1 : -1;
+            changed |= ROW_CHANGED;
+        }
+        if (colWasCorrect != (colDuplicates[col] == 0)) {
+            badLines += colWasCorrect ? 1 : -1;
+            changed |= COL_CHANGED;
+        }
+        return changed;
+    }
+
+    public boolean isRowCorrect(int row){
+        return rowDuplicates[row] == 0;
+    }
+
+    public boolean isColCorrect(int col){
+        return colDuplicates[col] == 0;
+    }
+
+    // Bit v-1 is set when digit v appears in the row or column.
+    public int getRowMask(int row){
+        return rowMasks[row];
+    }
+
+    public int getColMask(int col){
+        return colMasks[col];
+    }
+
+    public boolean hasRowOrColMistake(int row, int col){
+        return rowDuplicates[row] != 0 || colDuplicates[col] != 0;
+    }
+
+    public boolean areRowsAndColsCorrect(){
+        return badLines == 0;
+    }
+
+    public int addCage(boolean correct){
+        if (cageCount == cageCorrect.length)
+            cageCorrect = Arrays.copyOf(cageCorrect, cageCount * 2);
+        cageCorrect[cageCount] = correct;
+        if (!correct)
+            incorrectCages++;
+        return cageCount++;
+    }
+
+    public void setCageCorrect(int cage, boolean correct){
+        if (cageCorrect[cage] != correct) {
+            cageCorrect[cage] = correct;
+            incorrectCages += correct ? -1 : 1;
+        }
+    }
+
+    public boolean areCagesCorrect(){
+        return incorrectCages == 0;
+    }
+
+    public boolean isGameWon(){
+        return badLines == 0 && incorrectCages == 0;
+    }
+}
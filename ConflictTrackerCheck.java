@@ -0,0 +1,132 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Checks Board's incremental bookkeeping (ConflictTracker plus the cage mistake flags) against a full scan
+// of the grid. Seeded random edits, mostly toward the solution so that won boards come up too, and an
+// occasional clear are applied to generated boards of several sizes; after every edit each row/column
+// flag, each cage flag, the win flag and the changed flags setValue returns for repainting must match what
+// the scan finds. Exits with status 1 on the first mismatch.
+public class ConflictTrackerCheck {
+    private static final int[] SIZES = {3, 4, 5, 6, 7, 9};
+    private static final int BOARDS = 20;
+    private static final int EDITS = 2000;
+
+    public static void main(String[] args){
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+        long edits = 0;
+        long won = 0;
+        for (int size : SIZES)
+            for (int b = 0; b < BOARDS; b++) {
+                PuzzleGenerator generator = new PuzzleGenerator(size, seed + b);
+                Puzzle puzzle = generator.generateLayout(new int[] {1, 2, 2, 3, 3, 4});
+                int[] solution = generator.getSolution();
+                Board board = new Board(puzzle);
+                int[] values = new int[size * size];
+                SplittableRandom random = new SplittableRandom(seed * 31 + size * 1000 + b);
+                for (int e = 0; e < EDITS; e++) {
+                    if (random.nextInt(4 * size * size) == 0) {
+                        board.clear();
+                        Arrays.fill(values, 0);
+                        compare(puzzle, board, values, 0, 0, "clear");
+                        continue;
+                    }
+                    int cell = random.nextInt(size * size);
+                    int value = random.nextInt(10) < 7 ? solution[cell] : random.nextInt(size + 1);
+                    int row = cell / size;
+                    int col = cell % size;
+                    int cage = puzzle.getCageOf(cell);
+                    boolean rowWrong = !rowCorrect(values, size, row);
+                    boolean colWrong = !colCorrect(values, size, col);
+                    boolean cageWrong = cage != -1 && cageMistake(puzzle.getCage(cage), values, size);
+                    values[cell] = value;
+                    int changed = board.setValue(row, col, value);
+                    int expected = (rowWrong != !rowCorrect(values, size, row) ? Board.ROW_CHANGED : 0)
+                            | (colWrong != !colCorrect(values, size, col) ? Board.COL_CHANGED : 0)
+                            | (cage != -1 && cageWrong != cageMistake(puzzle.getCage(cage), values, size) ? Board.CAGE_CHANGED : 0);
+                    compare(puzzle, board, values, changed, expected, "set cell " + cell + " to " + value);
+                    edits++;
+                    if (board.isGameWon())
+                        won++;
+                }
+            }
+        System.out.println(edits + " edits on " + SIZES.length * BOARDS + " boards match the full scan, "
+                + won + " of them on a won board");
+    }
+
+    private static void compare(Puzzle puzzle, Board board, int[] values, int changed, int expected, String edit){
+        int size = puzzle.getSize();
+        String problem = null;
+        if (changed != expected)
+            problem = "setValue returned changed flags " + changed + ", the scan says " + expected;
+        for (int cell = 0; cell < values.length && problem == null; cell++) {
+            int row = cell / size;
+            int col = cell % size;
+            boolean scanned = !rowCorrect(values, size, row) || !colCorrect(values, size, col);
+            if (board.hasRowOrColMistake(row, col) != scanned)
+                problem = "hasRowOrColMistake(" + row + ", " + col + ") is " + !scanned;
+        }
+        boolean cagesCorrect = true;
+        for (int c = 0; c < puzzle.getCageCount() && problem == null; c++) {
+            PuzzleCage cage = puzzle.getCage(c);
+            if (board.hasCageMistake(c) != cageMistake(cage, values, size))
+                problem = "hasCageMistake(" + c + ") is " + board.hasCageMistake(c);
+            cagesCorrect &= cage.isSatisfiedBy(values);
+        }
+        boolean linesCorrect = true;
+        for (int i = 0; i < size; i++)
+            linesCorrect &= rowCorrect(values, size, i) && colCorrect(values, size, i);
+        if (problem == null && board.isGameWon() != (linesCorrect && cagesCorrect))
+            problem = "isGameWon() is " + board.isGameWon();
+        if (problem != null) {
+            System.out.println("After " + edit + " on this " + size + "x" + size + " board, " + problem + ":");
+            System.out.print(Solver.format(values, size));
+            System.exit(1);
+        }
+    }
+
+    private static boolean rowCorrect(int[] values, int size, int row){
+        for (int j = 0; j < size; j++)
+            for (int k = j + 1; k < size; k++)
+                if (values[row * size + j] != 0 && values[row * size + j] == values[row * size + k])
+                    return false;
+        return true;
+    }
+
+    private static boolean colCorrect(int[] values, int size, int col){
+        for (int j = 0; j < size; j++)
+            for (int k = j + 1; k < size; k++)
+                if (values[j * size + col] != 0 && values[j * size + col] == values[k * size + col])
+                    return false;
+        return true;
+    }
+
+    // A filled cage is wrong when its operation rejects it; a partly filled one when no digits in the
+    // empty cells, wherever they sit, would make the operation accept it.
+    private static boolean cageMistake(PuzzleCage cage, int[] values, int size){
+        long sum = 0;
+        long product = 1;
+        int max = 0;
+        int empty = 0;
+        for (int cell : cage.getCells()) {
+            int value = values[cell];
+            if (value == 0) {
+                empty++;
+                continue;
+            }
+            sum += value;
+            product *= value;
+            max = Math.max(max, value);
+        }
+        return !completes(cage, size, empty, 1, sum, product, max);
+    }
+
+    // Tries the empty cells' digits as non-decreasing sequences; order makes no difference to the result.
+    private static boolean completes(PuzzleCage cage, int size, int empty, int least, long sum, long product, int max){
+        if (empty == 0)
+            return cage.getOp().check(cage.getTarget(), sum, product, max);
+        for (int digit = least; digit <= size; digit++)
+            if (completes(cage, size, empty - 1, digit, sum + digit, product * digit, Math.max(max, digit)))
+                return true;
+        return false;
+    }
+}
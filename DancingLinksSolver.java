@@ -0,0 +1,269 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Solves a puzzle as an exact-cover problem with Knuth's Algorithm X on dancing links, as an alternative
+// to Solver's constraint propagation; it has the same methods, so either can be used. Every cage becomes
+// one option per filling that its operation accepts (Operation.check, as the window's cages use) and that
+// repeats no digit in a row or column of the cage. An option covers its cells and, for each of its digits,
+// that digit in the cell's row and in its column; a cell in no cage gets an option per digit. The links
+// are parallel int arrays indexed by node instead of node objects.
+public class DancingLinksSolver {
+    // A grid with huge cages can have more fillings than is worth listing.
+    public static final int MAX_NODES = 1 << 24;
+
+    private final Puzzle puzzle;
+    private final int size;
+    private final int columns;
+
+    // Node 0 is the root and nodes 1 to columns are the column headers; the rest belong to options.
+    private int[] left;
+    private int[] right;
+    private int[] up;
+    private int[] down;
+    private int[] column;
+    private int[] option;
+    private int nodeCount;
+    private final int[] count;
+    // Per option, its cells and digits packed as cell << 6 | digit.
+    private final List<int[]> entries = new ArrayList<>();
+
+    private final int[] chosen;
+    private final List<int[]> solutions = new ArrayList<>();
+    private long nodes;
+    private long nodeLimit = Long.MAX_VALUE;
+    private boolean abandoned;
+
+    public DancingLinksSolver(Puzzle puzzle){
+        this.puzzle = puzzle;
+        this.size = puzzle.getSize();
+        int cellCount = size * size;
+        this.columns = 3 * cellCount;
+        int capacity = 4 * columns;
+        left = new int[capacity];
+        right = new int[capacity];
+        up = new int[capacity];
+        down = new int[capacity];
+        column = new int[capacity];
+        option = new int[capacity];
+        count = new int[columns + 1];
+        for (int c = 0; c <= columns; c++) {
+            left[c] = c == 0 ? columns : c - 1;
+            right[c] = c == columns ? 0 : c + 1;
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+        }
+        nodeCount = columns + 1;
+        chosen = new int[cellCount];
+        for (int c = 0; c < puzzle.getCageCount(); c++)
+            addCage(puzzle.getCage(c));
+        for (int cell = 0; cell < cellCount; cell++)
+            if (puzzle.getCageOf(cell) == -1)
+                for (int digit = 1; digit <= size; digit++)
+                    addOption(new int[] {cell << 6 | digit});
+    }
+
+    public int[] solve(){
+        countSolutions(1);
+        return getSolution();
+    }
+
+    // Stops as soon as limit solutions have been found.
+    public int countSolutions(int limit){
+        solutions.clear();
+        abandoned = false;
+        nodes = 0;
+        return search(0, limit);
+    }
+
+    public int[] getSolution(){
+        return solutions.isEmpty() ? null : solutions.get(0);
+    }
+
+    public List<int[]> getSolutions(){
+        return solutions;
+    }
+
+    public long getNodes(){
+        return nodes;
+    }
+
+    public void setNodeLimit(long nodeLimit){
+        this.nodeLimit = nodeLimit;
+    }
+
+    public boolean isAbandoned(){
+        return abandoned;
+    }
+
+    public Puzzle getPuzzle(){
+        return puzzle;
+    }
+
+    public int getOptionCount(){
+        return entries.size();
+    }
+
+    private int search(int depth, int limit){
+        if (right[0] == 0) {
+            int[] values = new int[size * size];
+            for (int i = 0; i < depth; i++)
+                for (int entry : entries.get(option[chosen[i]]))
+                    values[entry >>> 6] = entry & 63;
+            solutions.add(values);
+            return 1;
+        }
+        if (nodes >= nodeLimit) {
+            abandoned = true;
+            return 0;
+        }
+        nodes++;
+        // The column with the fewest options left; an empty one is a dead end.
+        int best = right[0];
+        for (int c = right[best]; c != 0 && count[best] > 1; c = right[c])
+            if (count[c] < count[best])
+                best = c;
+        if (count[best] == 0)
+            return 0;
+        cover(best);
+        int found = 0;
+        for (int row = down[best]; row != best && found < limit && !abandoned; row = down[row]) {
+            chosen[depth] = row;
+            for (int j = right[row]; j != row; j = right[j])
+                cover(column[j]);
+            found += search(depth + 1, limit - found);
+            for (int j = left[row]; j != row; j = left[j])
+                uncover(column[j]);
+        }
+        uncover(best);
+        return found;
+    }
+
+    private void cover(int c){
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i])
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                count[column[j]]--;
+            }
+    }
+
+    private void uncover(int c){
+        for (int i = up[c]; i != c; i = up[i])
+            for (int j = left[i]; j != i; j = left[j]) {
+                count[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+
+    private void addCage(PuzzleCage cage){
+        int[] cells = cage.getCells();
+        int digits = CageCombinations.of(cage, size).getDigits();
+        fill(cage, cells, digits, new int[cells.length], 0, 0, 1, 0);
+    }
+
+    // Tries every digit the cage's combinations allow in cell i, cutting sums and products that can no
+    // longer reach the target, and adds an option for each complete filling the operation accepts.
+    private void fill(PuzzleCage cage, int[] cells, int digits, int[] values, int i, long sum, long product, int max){
+        Operation op = cage.getOp();
+        int target = cage.getTarget();
+        int remaining = cells.length - i;
+        if (op == Operation.ADD && (sum + remaining > target || sum + (long) remaining * size < target))
+            return;
+        if (op == Operation.MULTIPLY && target % product != 0)
+            return;
+        if (i == cells.length) {
+            if (!op.check(target, sum, product, max))
+                return;
+            int[] packed = new int[cells.length];
+            for (int k = 0; k < cells.length; k++)
+                packed[k] = cells[k] << 6 | values[k];
+            addOption(packed);
+            return;
+        }
+        for (int digit = 1; digit <= size; digit++) {
+            if ((digits & 1 << (digit - 1)) == 0 || repeats(cells, values, i, digit))
+                continue;
+            values[i] = digit;
+            fill(cage, cells, digits, values, i + 1, sum + digit, product * digit, Math.max(max, digit));
+        }
+    }
+
+    private boolean repeats(int[] cells, int[] values, int i, int digit){
+        for (int k = 0; k < i; k++)
+            if (values[k] == digit && (cells[k] / size == cells[i] / size || cells[k] % size == cells[i] % size))
+                return true;
+        return false;
+    }
+
+    private void addOption(int[] packed){
+        if (nodeCount + 3 * packed.length > MAX_NODES)
+            throw new IllegalArgumentException("The cages have too many fillings to solve as exact cover");
+        if (nodeCount + 3 * packed.length > left.length)
+            grow(Math.max(2 * left.length, nodeCount + 3 * packed.length));
+        int index = entries.size();
+        entries.add(packed);
+        int first = nodeCount;
+        int cellCount = size * size;
+        for (int entry : packed) {
+            int cell = entry >>> 6;
+            int digit = entry & 63;
+            link(first, index, 1 + cell);
+            link(first, index, 1 + cellCount + cell / size * size + digit - 1);
+            link(first, index, 1 + 2 * cellCount + cell % size * size + digit - 1);
+        }
+    }
+
+    // Appends a node for the option to the bottom of column c and to the end of the option's ring.
+    private void link(int first, int index, int c){
+        int node = nodeCount++;
+        column[node] = c;
+        option[node] = index;
+        up[node] = up[c];
+        down[node] = c;
+        down[up[c]] = node;
+        up[c] = node;
+        count[c]++;
+        if (node == first) {
+            left[node] = node;
+            right[node] = node;
+        }
+        else {
+            left[node] = left[first];
+            right[node] = first;
+            right[left[first]] = node;
+            left[first] = node;
+        }
+    }
+
+    private void grow(int capacity){
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        up = Arrays.copyOf(up, capacity);
+        down = Arrays.copyOf(down, capacity);
+        column = Arrays.copyOf(column, capacity);
+        option = Arrays.copyOf(option, capacity);
+    }
+
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            Puzzle puzzle = Puzzle.fromFile(new File(arg));
+            long start = System.nanoTime();
+            DancingLinksSolver solver = new DancingLinksSolver(puzzle);
+            int[] values = solver.solve();
+            long elapsed = System.nanoTime() - start;
+            System.out.println(arg + ": " + (values == null ? "no solution" : "solved") + " in "
+                    + (elapsed / 1000) + " us, " + solver.getOptionCount() + " options, " + solver.getNodes() + " nodes");
+            if (values != null)
+                System.out.print(Solver.format(values, puzzle.getSize()));
+        }
+    }
+}
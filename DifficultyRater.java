@@ -0,0 +1,363 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Rates a puzzle by solving it the way a person would: the easiest technique that still makes progress
+// is always used first, and only when none does is a value guessed. The score adds up each use of a
+// technique times its weight plus a large weight per guess, so it grows both with how much work a puzzle
+// takes and with how advanced that work is.
+public class DifficultyRater {
+    public enum Technique {
+        NAKED_SINGLE(1), HIDDEN_SINGLE(2), CAGE_COMBINATION(3), NAKED_PAIR(6);
+
+        private final int weight;
+
+        Technique(int weight){
+            this.weight = weight;
+        }
+
+        public int getWeight(){
+            return weight;
+        }
+    }
+
+    public static final int BRANCH_WEIGHT = 30;
+
+    private static final Technique[] TECHNIQUES = Technique.values();
+
+    private final Puzzle puzzle;
+    private final Solver solver;
+    private final int size;
+    private final int fullMask;
+    private final long[] uses = new long[TECHNIQUES.length];
+    private final long[] nanos = new long[TECHNIQUES.length];
+    private long branches;
+    private long totalNanos;
+    private int[] solution;
+
+    public DifficultyRater(Puzzle puzzle){
+        this.puzzle = puzzle;
+        this.solver = new Solver(puzzle);
+        this.size = puzzle.getSize();
+        this.fullMask = size == 32 ? -1 : (1 << size) - 1;
+    }
+
+    // Returns the score, or -1 when the puzzle has no solution.
+    public long rate(){
+        Arrays.fill(uses, 0);
+        Arrays.fill(nanos, 0);
+        branches = 0;
+        long start = System.nanoTime();
+        int[] domains = new int[size * size];
+        Arrays.fill(domains, fullMask);
+        solution = solve(domains, new boolean[domains.length]);
+        totalNanos = System.nanoTime() - start;
+        return solution == null ? -1 : getScore();
+    }
+
+    public long getScore(){
+        long score = branches * BRANCH_WEIGHT;
+        for (Technique technique : TECHNIQUES)
+            score += uses[technique.ordinal()] * technique.getWeight();
+        return score;
+    }
+
+    // "easy" when rows, columns and cage combinations are enough, "medium" when naked pairs are needed
+    // as well and "hard" when the puzzle cannot be finished without guessing.
+    public String getLabel(){
+        if (branches > 0)
+            return "hard";
+        return uses[Technique.NAKED_PAIR.ordinal()] > 0 ? "medium" : "easy";
+    }
+
+    public long getUses(Technique technique){
+        return uses[technique.ordinal()];
+    }
+
+    public long getNanos(Technique technique){
+        return nanos[technique.ordinal()];
+    }
+
+    public long getBranches(){
+        return branches;
+    }
+
+    public long getTotalNanos(){
+        return totalNanos;
+    }
+
+    public int[] getSolution(){
+        return solution == null ? null : solution.clone();
+    }
+
+    public static String csvHeader(){
+        StringBuilder header = new StringBuilder("puzzle,size,cages,label,score,branches,total_us");
+        for (Technique technique : TECHNIQUES) {
+            String name = technique.name().toLowerCase();
+            header.append(',').append(name).append("_uses,").append(name).append("_us");
+        }
+        return header.toString();
+    }
+
+    public String csvRow(String name){
+        StringBuilder row = new StringBuilder(name).append(',').append(size).append(',').append(puzzle.getCageCount())
+                .append(',').append(solution == null ? "unsolvable" : getLabel()).append(',').append(solution == null ? -1 : getScore())
+                .append(',').append(branches).append(',').append(totalNanos / 1000);
+        for (Technique technique : TECHNIQUES)
+            row.append(',').append(uses[technique.ordinal()]).append(',').append(nanos[technique.ordinal()] / 1000);
+        return row.toString();
+    }
+
+    private int[] solve(int[] domains, boolean[] placed){
+        if (!deduce(domains, placed))
+            return null;
+        int cell = -1;
+        for (int i = 0; i < domains.length; i++)
+            if (Integer.bitCount(domains[i]) > 1 && (cell == -1 || Integer.bitCount(domains[i]) < Integer.bitCount(domains[cell])))
+                cell = i;
+        if (cell == -1)
+            return Solver.toValues(domains);
+        for (int rest = domains[cell]; rest != 0; rest &= rest - 1) {
+            branches++;
+            int[] guess = domains.clone();
+            guess[cell] = Integer.lowestOneBit(rest);
+            int[] found = solve(guess, placed.clone());
+            if (found != null)
+                return found;
+        }
+        return null;
+    }
+
+    // Applies the easiest technique that makes progress until none does; false on a contradiction.
+    private boolean deduce(int[] domains, boolean[] placed){
+        while (true) {
+            boolean progress = false;
+            for (Technique technique : TECHNIQUES) {
+                long start = System.nanoTime();
+                int found = apply(technique, domains, placed);
+                nanos[technique.ordinal()] += System.nanoTime() - start;
+                if (found < 0)
+                    return false;
+                if (found > 0) {
+                    uses[technique.ordinal()] += found;
+                    progress = true;
+                    break;
+                }
+            }
+            if (!progress)
+                return true;
+        }
+    }
+
+    // Returns the number of deductions made, or -1 on a contradiction.
+    private int apply(Technique technique, int[] domains, boolean[] placed){
+        switch (technique) {
+            case NAKED_SINGLE:
+                return nakedSingles(domains, placed);
+            case HIDDEN_SINGLE:
+                return hiddenSingles(domains);
+            case CAGE_COMBINATION:
+                return cageCombinations(domains);
+            default:
+                return nakedPairs(domains);
+        }
+    }
+
+    private int nakedSingles(int[] domains, boolean[] placed){
+        int found = 0;
+        for (int cell = 0; cell < domains.length; cell++) {
+            int bit = domains[cell];
+            if (placed[cell] || Integer.bitCount(bit) != 1)
+                continue;
+            placed[cell] = true;
+            found++;
+            int row = cell / size;
+            int col = cell % size;
+            for (int k = 0; k < size; k++) {
+                if (k != col && (domains[row * size + k] &= ~bit) == 0)
+                    return -1;
+                if (k != row && (domains[k * size + col] &= ~bit) == 0)
+                    return -1;
+            }
+        }
+        return found;
+    }
+
+    private int hiddenSingles(int[] domains){
+        int found = 0;
+        for (int line = 0; line < 2 * size; line++) {
+            int once = 0;
+            int twice = 0;
+            for (int k = 0; k < size; k++) {
+                int domain = domains[lineCell(line, k)];
+                twice |= once & domain;
+                once |= domain;
+            }
+            if (once != fullMask)
+                return -1;
+            int singles = once & ~twice;
+            for (int k = 0; k < size && singles != 0; k++) {
+                int cell = lineCell(line, k);
+                int single = domains[cell] & singles;
+                if (single != 0 && single != domains[cell]) {
+                    if (Integer.bitCount(single) > 1)
+                        return -1;
+                    domains[cell] = single;
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private int cageCombinations(int[] domains){
+        int found = 0;
+        for (int c = 0; c < puzzle.getCageCount(); c++) {
+            PuzzleCage cage = puzzle.getCage(c);
+            int[] support = solver.cageSupport(domains, c);
+            for (int i = 0; i < cage.getCellCount(); i++) {
+                int cell = cage.getCell(i);
+                if (support[i] == 0)
+                    return -1;
+                if (support[i] != domains[cell]) {
+                    domains[cell] = support[i];
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    // Two cells of a row or column that are down to the same two values take those values away from
+    // the rest of the line.
+    private int nakedPairs(int[] domains){
+        int found = 0;
+        for (int line = 0; line < 2 * size; line++)
+            for (int a = 0; a < size; a++) {
+                int pair = domains[lineCell(line, a)];
+                if (Integer.bitCount(pair) != 2)
+                    continue;
+                for (int b = a + 1; b < size; b++) {
+                    if (domains[lineCell(line, b)] != pair)
+                        continue;
+                    for (int k = 0; k < size; k++) {
+                        int cell = lineCell(line, k);
+                        if (k == a || k == b || (domains[cell] & pair) == 0)
+                            continue;
+                        if ((domains[cell] &= ~pair) == 0)
+                            return -1;
+                        found++;
+                    }
+                }
+            }
+        return found;
+    }
+
+    private int lineCell(int line, int k){
+        return line < size ? line * size + k : k * size + (line - size);
+    }
+
+    // Every puzzle of a file that may be an archive, with null in place of each one that is malformed; those
+    // are reported and the rest still get rated.
+    private static List<Puzzle> readPuzzles(File file){
+        List<Puzzle> puzzles = new ArrayList<>();
+        try (PuzzleReader reader = PuzzleReader.open(file)) {
+            while (true) {
+                try {
+                    Puzzle puzzle = reader.read();
+                    if (puzzle == null)
+                        break;
+                    puzzles.add(puzzle);
+                } catch (PuzzleFormatException | IllegalArgumentException e) {
+                    System.err.println(file + "#" + (puzzles.size() + 1) + ": " + e.getMessage());
+                    puzzles.add(null);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(file + ": " + e.getMessage());
+        }
+        return puzzles;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        List<File> files = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        File csv = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-csv"))
+                csv = new File(args[++i]);
+            else {
+                File file = new File(args[i]);
+                File[] listed = file.listFiles(File::isFile);
+                if (listed != null) {
+                    Arrays.sort(listed);
+                    files.addAll(Arrays.asList(listed));
+                }
+                else
+                    files.add(file);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: java DifficultyRater <puzzle files or directories> [-threads N] [-csv output.csv]");
+            System.exit(1);
+        }
+
+        // Every file may be an archive of several puzzles; each puzzle is rated as its own task.
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<String[]>> results = new ArrayList<>();
+        int invalid = 0;
+        for (File file : files) {
+            List<Puzzle> puzzles = readPuzzles(file);
+            for (int p = 0; p < puzzles.size(); p++) {
+                Puzzle puzzle = puzzles.get(p);
+                if (puzzle == null) {
+                    invalid++;
+                    continue;
+                }
+                String name = puzzles.size() == 1 ? file.getName() : file.getName() + "#" + (p + 1);
+                results.add(executor.submit(() -> {
+                    DifficultyRater rater = new DifficultyRater(puzzle);
+                    long score = rater.rate();
+                    return new String[]{score < 0 ? "unsolvable" : rater.getLabel(), rater.csvRow(name)};
+                }));
+            }
+        }
+
+        int easy = 0;
+        int medium = 0;
+        int hard = 0;
+        int unsolvable = 0;
+        try (PrintWriter out = csv == null ? null : new PrintWriter(csv, "UTF-8")) {
+            if (out != null)
+                out.println(csvHeader());
+            for (Future<String[]> result : results) {
+                String[] rating = result.get();
+                if (out != null)
+                    out.println(rating[1]);
+                if (rating[0].equals("easy"))
+                    easy++;
+                else if (rating[0].equals("medium"))
+                    medium++;
+                else if (rating[0].equals("hard"))
+                    hard++;
+                else
+                    unsolvable++;
+            }
+        }
+        executor.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(results.size() + " puzzles: " + easy + " easy, " + medium + " medium, " + hard + " hard, "
+                + unsolvable + " unsolvable" + (invalid > 0 ? ", " + invalid + " could not be read" : ""));
+        System.out.printf("%.1f s, %.0f puzzles/s on %d threads%n", seconds, results.size() / seconds, threads);
+    }
+}
@@ -0,0 +1,80 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compares Solver with DancingLinksSolver on the same puzzles, grouped by grid size, so the faster engine
+// can be picked per size. Each round builds a fresh solver per puzzle (for DancingLinksSolver that
+// includes listing the cage fillings) and counts up to -limit solutions; the best measured round counts.
+public class ExactCoverBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java ExactCoverBenchmark <puzzle file or directory>... [-limit N]");
+            System.exit(1);
+        }
+        int limit = 2;
+        Map<Integer, List<Puzzle>> bySize = new TreeMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-limit"))
+                limit = Integer.parseInt(args[++i]);
+            else
+                addPuzzles(new File(args[i]), bySize);
+        }
+        System.out.println("Counting up to " + limit + " solutions");
+        System.out.println("size  puzzles      Solver ms       nodes     DLX ms       nodes    options  faster");
+        for (Map.Entry<Integer, List<Puzzle>> entry : bySize.entrySet()) {
+            List<Puzzle> puzzles = entry.getValue();
+            long[] solverNodes = new long[1];
+            long[] dlxNodes = new long[2];
+            double solverTime = measure(puzzles, false, limit, solverNodes);
+            double dlxTime = measure(puzzles, true, limit, dlxNodes);
+            System.out.printf("%2dx%-2d %7d %14.2f %11d %10.2f %11d %10d  %s%n", entry.getKey(), entry.getKey(),
+                    puzzles.size(), solverTime, solverNodes[0], dlxTime, dlxNodes[0], dlxNodes[1],
+                    solverTime <= dlxTime ? "Solver" : "DLX");
+        }
+    }
+
+    private static void addPuzzles(File file, Map<Integer, List<Puzzle>> bySize) throws IOException {
+        File[] files = file.listFiles(File::isFile);
+        if (files == null)
+            files = new File[] {file};
+        Arrays.sort(files);
+        for (File puzzleFile : files) {
+            Puzzle puzzle = Puzzle.fromFile(puzzleFile);
+            bySize.computeIfAbsent(puzzle.getSize(), size -> new ArrayList<>()).add(puzzle);
+        }
+    }
+
+    // Best of the measured rounds in milliseconds for the whole set. counts gets the search nodes of one
+    // round and, for DancingLinksSolver, the number of options.
+    private static double measure(List<Puzzle> puzzles, boolean exactCover, int limit, long[] counts){
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            Arrays.fill(counts, 0);
+            long start = System.nanoTime();
+            for (Puzzle puzzle : puzzles) {
+                if (exactCover) {
+                    DancingLinksSolver solver = new DancingLinksSolver(puzzle);
+                    solver.countSolutions(limit);
+                    counts[0] += solver.getNodes();
+                    counts[1] += solver.getOptionCount();
+                }
+                else {
+                    Solver solver = new Solver(puzzle);
+                    solver.countSolutions(limit);
+                    counts[0] += solver.getNodes();
+                }
+            }
+            double time = (System.nanoTime() - start) / 1e6;
+            if (round >= WARMUP_ROUNDS)
+                best = Math.min(best, time);
+        }
+        return best;
+    }
+}
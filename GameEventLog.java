@@ -0,0 +1,302 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// An append-only binary log of what the player does, for analytics: every cell change with the action
+// behind it (typing, undo, redo, clear or restoring a saved game) and every mistake toggle. Events are
+// added to an in-memory batch, which costs a few nanoseconds on the FX thread, and the log's own thread
+// appends the batch to the file after a delay or as soon as it is full. GameEventReplay reads it back.
+//
+// The file starts with MAGIC and VERSION, then one record after another. A record is a packed int (value,
+// cell, kind and a flag joining it to the event before, like MoveLog's groups) and the milliseconds since
+// its session started; a SESSION record has the start time (epoch milliseconds) and the puzzle, in the
+// PuzzleArchive record layout, in place of the milliseconds. A crash can leave half a record at the end.
+//
+// Once the file has grown to maxBytes, the next session starts a new one and the full file is renamed to
+// the first free name.1, name.2 and so on. Every part begins with a session, so each replays on its own.
+public class GameEventLog implements Closeable {
+    public static final int MAGIC = 0x4d444b45;
+    public static final int VERSION = 1;
+
+    public static final int SESSION = 0;
+    public static final int EDIT = 1;
+    public static final int UNDO = 2;
+    public static final int REDO = 3;
+    public static final int CLEAR = 4;
+    public static final int RESTORE = 5;
+    public static final int MISTAKES_SHOWN = 6;
+    public static final int MISTAKES_HIDDEN = 7;
+
+    static final int VALUE_MASK = (1 << 6) - 1;
+    static final int CELL_SHIFT = 6;
+    static final int CELL_MASK = (1 << 10) - 1;
+    static final int KIND_SHIFT = 16;
+    static final int KIND_MASK = 7;
+    static final int CONTINUES = 1 << 19;
+
+    private static final int BATCH_BYTES = 1 << 16;
+    public static final long MAX_BYTES = 64L << 20;
+
+    private final Path file;
+    private final long delayMillis;
+    private final long maxBytes;
+    private final ScheduledExecutorService writer;
+    // Only used by the writer thread.
+    private FileChannel channel;
+    private ByteBuffer spare = ByteBuffer.allocate(BATCH_BYTES);
+    private ByteBuffer batch = ByteBuffer.allocate(BATCH_BYTES);
+    private boolean scheduled = false;
+    private boolean full = false;
+    private boolean closed = false;
+    // Where the last session record in the batch starts, or -1 when it has none.
+    private int sessionAt = -1;
+    private long sessionStart = System.nanoTime();
+    private int actionKind = EDIT;
+    private boolean actionStarted = false;
+
+    public GameEventLog(File file, long delayMillis){
+        this(file, delayMillis, MAX_BYTES);
+    }
+
+    public GameEventLog(File file, long delayMillis, long maxBytes){
+        this.file = file.toPath();
+        this.delayMillis = delayMillis;
+        this.maxBytes = maxBytes;
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Every event after this one belongs to the puzzle until the next session starts.
+    public void startSession(Puzzle puzzle){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 8 * puzzle.getCellCount());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SESSION << KIND_SHIFT);
+            out.writeLong(System.currentTimeMillis());
+            PuzzleArchiveWriter.writeRecord(out, puzzle);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        synchronized (this) {
+            sessionStart = System.nanoTime();
+            actionKind = EDIT;
+            room(bytes.size());
+            sessionAt = batch.position();
+            batch.put(bytes.toByteArray());
+            added();
+        }
+    }
+
+    // Cell changes between beginAction and endAction are logged as that kind of action (UNDO, REDO, CLEAR
+    // or RESTORE) and joined together; outside of one they are EDITs.
+    public synchronized void beginAction(int kind){
+        actionKind = kind;
+        actionStarted = false;
+    }
+
+    public synchronized void endAction(){
+        actionKind = EDIT;
+    }
+
+    public synchronized void cellChanged(int cell, int value){
+        if (cell < 0 || cell > CELL_MASK || value < 0 || value > VALUE_MASK)
+            throw new IllegalArgumentException("Event does not fit a 32x32 grid");
+        int record = actionKind << KIND_SHIFT | cell << CELL_SHIFT | value;
+        if (actionKind != EDIT) {
+            if (actionStarted)
+                record |= CONTINUES;
+            actionStarted = true;
+        }
+        append(record);
+    }
+
+    public synchronized void mistakesShown(boolean shown){
+        append((shown ? MISTAKES_SHOWN : MISTAKES_HIDDEN) << KIND_SHIFT);
+    }
+
+    // Waits until everything logged so far is in the file.
+    public void flush(){
+        try {
+            writer.submit(this::write).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Event log failed: " + e.getCause());
+        }
+    }
+
+    @Override
+    public void close(){
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+        }
+        flush();
+        writer.execute(() -> {
+            try {
+                if (channel != null)
+                    channel.close();
+            } catch (IOException e) {
+                System.err.println("Event log failed: " + e.getMessage());
+            }
+        });
+        writer.shutdown();
+    }
+
+    private void append(int record){
+        room(8);
+        batch.putInt(record);
+        batch.putInt((int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - sessionStart) / 1000000));
+        added();
+    }
+
+    private void room(int bytes){
+        if (batch.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * batch.capacity(), batch.position() + bytes));
+            batch.flip();
+            grown.put(batch);
+            batch = grown;
+        }
+    }
+
+    // Events logged after close() stay in memory; nothing writes them any more.
+    private void added(){
+        if (closed)
+            return;
+        if (!scheduled) {
+            scheduled = true;
+            writer.schedule(this::write, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        if (!full && batch.position() >= BATCH_BYTES) {
+            full = true;
+            writer.execute(this::write);
+        }
+    }
+
+    // Swaps the batch for the spare one, so the FX thread keeps adding events while this one is written.
+    private void write(){
+        ByteBuffer written;
+        int session;
+        synchronized (this) {
+            written = batch;
+            batch = spare;
+            session = sessionAt;
+            sessionAt = -1;
+            scheduled = false;
+            full = false;
+        }
+        written.flip();
+        try {
+            if (written.hasRemaining()) {
+                open();
+                if (session >= 0 && channel.size() + session >= maxBytes) {
+                    int end = written.limit();
+                    written.limit(session);
+                    while (written.hasRemaining())
+                        channel.write(written);
+                    written.limit(end);
+                    roll();
+                }
+                while (written.hasRemaining())
+                    channel.write(written);
+            }
+        } catch (IOException e) {
+            System.err.println("Event log failed: " + e.getMessage());
+        }
+        written.clear();
+        synchronized (this) {
+            spare = written;
+        }
+    }
+
+    private void open() throws IOException {
+        if (channel != null)
+            return;
+        FileChannel opened = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            if (opened.size() == 0) {
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                while (header.hasRemaining())
+                    opened.write(header);
+            }
+            else {
+                opened.read(header, 0);
+                if (header.position() < 8 || header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+                    throw new IOException(file + " is not a game event log of version " + VERSION);
+                // Drop the half record a crash left behind, or everything appended after it is misaligned.
+                // Streamed rather than mapped, since Windows refuses to truncate a file with a mapping open.
+                long complete = completeLength(Channels.newInputStream(opened.position(8)));
+                if (complete < opened.size())
+                    opened.truncate(complete);
+            }
+            opened.position(opened.size());
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        channel = opened;
+    }
+
+    // Closes the full file and moves it to the first free numbered name; open() then starts a new one.
+    private void roll() throws IOException {
+        channel.close();
+        channel = null;
+        Path part;
+        int n = 1;
+        do
+            part = file.resolveSibling(file.getFileName() + "." + n++);
+        while (Files.exists(part));
+        Files.move(file, part);
+        open();
+    }
+
+    // The length of the log up to the end of its last complete record, reading the records after the
+    // header from the stream. Session records are skipped over by their lengths, not decoded.
+    static long completeLength(InputStream records) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(records, BATCH_BYTES));
+        long end = 8;
+        try {
+            while (true) {
+                int record = in.readInt();
+                long length = 8;
+                if ((record >>> KIND_SHIFT & KIND_MASK) == SESSION) {
+                    in.skipNBytes(9);
+                    int cages = in.readUnsignedShort();
+                    length = 15;
+                    for (int c = 0; c < cages; c++) {
+                        in.skipNBytes(5);
+                        int cells = in.readUnsignedShort();
+                        in.skipNBytes(2L * cells);
+                        length += 7 + 2 * cells;
+                    }
+                }
+                else
+                    in.skipNBytes(4);
+                end += length;
+            }
+        } catch (EOFException e) {
+            // The end of the file, or a record cut short by it.
+        }
+        return end;
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.File;
+import java.util.SplittableRandom;
+
+// Writes simulated sessions through GameEventLog, timing each logged event on the calling thread, then
+// replays the file with GameEventReplay a few times to measure events per second. A simulated player fills
+// the cells of a generated puzzle in random order, types a wrong value about one time in eight (undoing it
+// straight away or overwriting it later), sometimes redoes, toggles mistakes and, rarely, clears the board.
+public class GameEventLogBenchmark {
+    private static final int[] SIZES = {4, 6, 9, 9, 12, 16};
+    private static final int REPLAYS = 5;
+
+    public static void main(String[] args) throws Exception {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+        int sessions = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        File file = File.createTempFile("mathdoku-events", ".log");
+        file.deleteOnExit();
+        file.delete();
+
+        Puzzle[] puzzles = new Puzzle[SIZES.length];
+        int[][] solutions = new int[SIZES.length][];
+        for (int i = 0; i < SIZES.length; i++) {
+            PuzzleGenerator generator = new PuzzleGenerator(SIZES[i], seed + i);
+            puzzles[i] = generator.generateLayout(new int[] {1, 2, 2, 2, 3, 3, 3, 4});
+            solutions[i] = generator.getSolution();
+        }
+
+        LatencyRecorder append = new LatencyRecorder();
+        SplittableRandom random = new SplittableRandom(seed);
+        GameEventLog log = new GameEventLog(file, 1000);
+        long events = 0;
+        long start = System.nanoTime();
+        for (int s = 0; s < sessions; s++) {
+            int p = random.nextInt(puzzles.length);
+            log.startSession(puzzles[p]);
+            events += play(log, solutions[p], SIZES[p], random, append);
+        }
+        log.close();
+        long writeNanos = System.nanoTime() - start;
+        System.out.printf("Logged %d events in %d sessions: %.0f ms, %.1f bytes per event, %.1f million events per second%n",
+                events, sessions, writeNanos / 1e6, file.length() / (double) events, events * 1e3 / writeNanos);
+        System.out.println("Logging an event: " + append.summary());
+
+        for (int r = 0; r < REPLAYS; r++) {
+            GameEventReplay.Stats stats = new GameEventReplay.Stats();
+            start = System.nanoTime();
+            GameEventReplay.replay(file, stats);
+            long nanos = System.nanoTime() - start;
+            System.out.printf("Replay %d: %.0f ms, %.1f million events per second%n", r + 1, nanos / 1e6, stats.events * 1e3 / nanos);
+            if (r == REPLAYS - 1)
+                stats.print();
+        }
+    }
+
+    private static long play(GameEventLog log, int[] solution, int size, SplittableRandom random, LatencyRecorder append){
+        int cells = size * size;
+        int[] order = new int[cells];
+        for (int i = 0; i < cells; i++)
+            order[i] = i;
+        for (int i = cells - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        long events = 0;
+        for (int i = 0; i < cells; i++) {
+            int cell = order[i];
+            if (random.nextInt(8) == 0) {
+                int wrong = 1 + (solution[cell] + random.nextInt(size - 1)) % size;
+                events += timed(append, () -> log.cellChanged(cell, wrong));
+                if (random.nextBoolean()) {
+                    events += action(log, GameEventLog.UNDO, cell, 0, append);
+                    if (random.nextInt(4) == 0) {
+                        events += action(log, GameEventLog.REDO, cell, wrong, append);
+                        events += action(log, GameEventLog.UNDO, cell, 0, append);
+                    }
+                }
+            }
+            if (random.nextInt(100) == 0)
+                events += timed(append, () -> log.mistakesShown(random.nextBoolean()));
+            events += timed(append, () -> log.cellChanged(cell, solution[cell]));
+        }
+        if (random.nextInt(50) == 0) {
+            log.beginAction(GameEventLog.CLEAR);
+            for (int c = 0; c < cells; c++) {
+                int cell = c;
+                events += timed(append, () -> log.cellChanged(cell, 0));
+            }
+            log.endAction();
+        }
+        return events;
+    }
+
+    private static int action(GameEventLog log, int kind, int cell, int value, LatencyRecorder append){
+        log.beginAction(kind);
+        timed(append, () -> log.cellChanged(cell, value));
+        log.endAction();
+        return 1;
+    }
+
+    private static int timed(LatencyRecorder append, Runnable event){
+        long start = System.nanoTime();
+        event.run();
+        append.record(System.nanoTime() - start);
+        return 1;
+    }
+}
@@ -0,0 +1,75 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+// Checks that GameEventLog recovers from a crash in the middle of a write: a session is logged, the file
+// is cut short by a few bytes as a dying writer would leave it, and a second log appends another session.
+// Replaying must then find both sessions with every event of the second intact, whatever the cut. Then
+// sessions are logged with a size limit smaller than one session, so every new one rolls the file over;
+// each part must replay on its own as one whole, solved session.
+public class GameEventLogCheck {
+    public static void main(String[] args) throws IOException {
+        File file = File.createTempFile("mathdoku-events", ".log");
+        file.deleteOnExit();
+        PuzzleGenerator generator = new PuzzleGenerator(4, 1);
+        Puzzle puzzle = generator.generateLayout(new int[] {1, 2, 3});
+        int[] solution = generator.getSolution();
+        int failures = 0;
+        for (int cut = 0; cut <= 12; cut++) {
+            file.delete();
+            logSession(new GameEventLog(file, 1000), puzzle, solution);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(raf.length() - cut);
+            }
+            logSession(new GameEventLog(file, 1000), puzzle, solution);
+            GameEventReplay.Stats stats = new GameEventReplay.Stats();
+            try {
+                GameEventReplay.replay(file, stats);
+            } catch (IOException e) {
+                System.out.println("Cut " + cut + " bytes: " + e.getMessage());
+                failures++;
+                continue;
+            }
+            // A cut loses the events it reaches into, which leaves the first session unsolved; the second
+            // session is always whole.
+            long expected = 2L * solution.length - (cut + 7) / 8;
+            int solved = cut == 0 ? 2 : 1;
+            if (stats.sessions != 2 || stats.events != expected || stats.solved != solved) {
+                System.out.println("Cut " + cut + " bytes: " + stats.sessions + " sessions, " + stats.events
+                        + " events, " + stats.solved + " solved; expected 2, " + expected + ", " + solved);
+                failures++;
+            }
+        }
+        file.delete();
+        int sessions = 5;
+        for (int s = 0; s < sessions; s++)
+            logSession(new GameEventLog(file, 1000, 64), puzzle, solution);
+        for (int s = 0; s < sessions; s++) {
+            File part = s == sessions - 1 ? file : new File(file.getPath() + "." + (s + 1));
+            part.deleteOnExit();
+            GameEventReplay.Stats stats = new GameEventReplay.Stats();
+            try {
+                GameEventReplay.replay(part, stats);
+            } catch (IOException e) {
+                System.out.println(part.getName() + ": " + e.getMessage());
+                failures++;
+                continue;
+            }
+            if (stats.sessions != 1 || stats.events != solution.length || stats.solved != 1) {
+                System.out.println(part.getName() + ": " + stats.sessions + " sessions, " + stats.events + " events, "
+                        + stats.solved + " solved; expected 1, " + solution.length + ", 1");
+                failures++;
+            }
+        }
+        System.out.println(failures == 0 ? "Torn writes recovered, full logs rolled over" : failures + " failures");
+        if (failures > 0)
+            System.exit(1);
+    }
+
+    private static void logSession(GameEventLog log, Puzzle puzzle, int[] solution){
+        log.startSession(puzzle);
+        for (int cell = 0; cell < solution.length; cell++)
+            log.cellChanged(cell, solution[cell]);
+        log.close();
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Replays a GameEventLog move by move on a headless Board per session. The file is mapped and decoded in
+// place and an event costs one Board.setValue, so a day of sessions replays at millions of events per
+// second. The main method reports time to solve and error rates; boardAt rebuilds any point of a session.
+public class GameEventReplay {
+    public interface Listener {
+        // The board starts empty and is the one every event of the session is applied to.
+        void session(int session, long startMillis, Board board);
+
+        // Called after a cell event has been applied to the board; cell and value are 0 for mistake toggles.
+        void event(int kind, boolean continues, int millis, int cell, int value, Board board);
+    }
+
+    // Returns the number of events replayed, not counting session starts.
+    public static long replay(File file, Listener listener) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException(file + " is larger than 2 GB; replay it in parts");
+            MappedByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return replay(log, listener);
+        }
+    }
+
+    // Stops quietly at a half-written record at the end, which is what a crash leaves behind.
+    public static long replay(ByteBuffer log, Listener listener) throws IOException {
+        if (log.remaining() < 8 || log.getInt() != GameEventLog.MAGIC)
+            throw new IOException("Not a game event log");
+        if (log.getInt() != GameEventLog.VERSION)
+            throw new IOException("Unsupported game event log version");
+        long events = 0;
+        int session = -1;
+        Board board = null;
+        int size = 0;
+        try {
+            while (log.remaining() >= 8) {
+                int record = log.getInt();
+                int kind = record >>> GameEventLog.KIND_SHIFT & GameEventLog.KIND_MASK;
+                if (kind == GameEventLog.SESSION) {
+                    long start = log.getLong();
+                    board = new Board(PuzzleArchive.readRecord(log));
+                    size = board.getSize();
+                    listener.session(++session, start, board);
+                    continue;
+                }
+                int millis = log.getInt();
+                if (board == null)
+                    throw new IOException("Event before the first session");
+                int cell = record >>> GameEventLog.CELL_SHIFT & GameEventLog.CELL_MASK;
+                int value = record & GameEventLog.VALUE_MASK;
+                if (kind < GameEventLog.MISTAKES_SHOWN) {
+                    if (cell >= size * size || value > size)
+                        throw new IOException("Event " + events + " does not fit a " + size + "x" + size + " grid");
+                    board.setValue(cell / size, cell % size, value);
+                }
+                listener.event(kind, (record & GameEventLog.CONTINUES) != 0, millis, cell, value, board);
+                events++;
+            }
+        } catch (BufferUnderflowException e) {
+            // A session record cut short.
+        }
+        return events;
+    }
+
+    // The board of the given session (from 0) after its first count events.
+    public static Board boardAt(File file, int session, long count) throws IOException {
+        Board[] found = new Board[1];
+        replay(file, new Listener() {
+            private int current = -1;
+            private long seen = 0;
+
+            @Override
+            public void session(int index, long startMillis, Board board){
+                current = index;
+                seen = 0;
+                if (current == session && count == 0)
+                    found[0] = copy(board);
+            }
+
+            @Override
+            public void event(int kind, boolean continues, int millis, int cell, int value, Board board){
+                if (current == session && ++seen == count)
+                    found[0] = copy(board);
+            }
+        });
+        if (found[0] == null)
+            throw new IllegalArgumentException("The log has no event " + count + " in session " + session);
+        return found[0];
+    }
+
+    private static Board copy(Board board){
+        Board copy = new Board(board.getPuzzle());
+        int size = board.getSize();
+        for (int cell = 0; cell < size * size; cell++)
+            copy.setValue(cell / size, cell % size, board.getValue(cell / size, cell % size));
+        return copy;
+    }
+
+    // Counts for a whole log. An error is a typed value that leaves its cell breaking a row, column or
+    // cage; a session is solved at the first event that completes the board correctly.
+    static class Stats implements Listener {
+        long sessions;
+        long events;
+        long edits;
+        long errors;
+        long undos;
+        long redos;
+        long clears;
+        long toggles;
+        long[] solveMillis = new long[16];
+        int solved;
+        private boolean sessionSolved;
+
+        @Override
+        public void session(int session, long startMillis, Board board){
+            sessions++;
+            sessionSolved = false;
+        }
+
+        @Override
+        public void event(int kind, boolean continues, int millis, int cell, int value, Board board){
+            events++;
+            switch (kind) {
+                case GameEventLog.EDIT:
+                    edits++;
+                    int size = board.getSize();
+                    int cage = board.getPuzzle().getCageOf(cell);
+                    if (value != 0 && (board.hasRowOrColMistake(cell / size, cell % size) || cage != -1 && board.hasCageMistake(cage)))
+                        errors++;
+                    break;
+                case GameEventLog.UNDO:
+                    undos += continues ? 0 : 1;
+                    break;
+                case GameEventLog.REDO:
+                    redos += continues ? 0 : 1;
+                    break;
+                case GameEventLog.CLEAR:
+                    clears += continues ? 0 : 1;
+                    break;
+                case GameEventLog.MISTAKES_SHOWN:
+                case GameEventLog.MISTAKES_HIDDEN:
+                    toggles++;
+                    break;
+                default:
+                    break;
+            }
+            if (!sessionSolved && kind < GameEventLog.MISTAKES_SHOWN && board.isGameWon()) {
+                sessionSolved = true;
+                if (solved == solveMillis.length)
+                    solveMillis = Arrays.copyOf(solveMillis, 2 * solved);
+                solveMillis[solved++] = millis;
+            }
+        }
+
+        void print(){
+            System.out.printf("%d sessions, %d events%n", sessions, events);
+            System.out.printf("%d edits, %d errors (%.1f%%), %d undos, %d redos, %d clears, %d mistake toggles%n", edits,
+                    errors, edits == 0 ? 0 : 100.0 * errors / edits, undos, redos, clears, toggles);
+            if (solved == 0) {
+                System.out.println("No session was solved");
+                return;
+            }
+            long[] times = Arrays.copyOf(solveMillis, solved);
+            Arrays.sort(times);
+            long total = 0;
+            for (long time : times)
+                total += time;
+            System.out.printf("%d of %d sessions solved, time to solve: median %.1f s, mean %.1f s, max %.1f s%n", solved,
+                    sessions, times[solved / 2] / 1e3, total / 1e3 / solved, times[solved - 1] / 1e3);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        File file = null;
+        int session = -1;
+        long count = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-board")) {
+                session = Integer.parseInt(args[++i]);
+                count = Long.parseLong(args[++i]);
+            }
+            else
+                file = new File(args[i]);
+        }
+        if (file == null || !file.isFile()) {
+            System.err.println("Usage: java GameEventReplay <event log> [-board <session> <events>]");
+            System.exit(1);
+        }
+        if (session >= 0) {
+            Board board = boardAt(file, session, count);
+            System.out.print(Solver.format(board.getValues(), board.getSize()));
+            return;
+        }
+        Stats stats = new Stats();
+        long start = System.nanoTime();
+        replay(file, stats);
+        long nanos = System.nanoTime() - start;
+        stats.print();
+        System.out.printf("Replayed in %.0f ms, %.1f million events per second%n", nanos / 1e6, stats.events * 1e3 / nanos);
+    }
+}
@@ -0,0 +1,64 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Flight Recorder events for the window's hot paths. They cost next to nothing unless a recording is
+// running, e.g. java -XX:StartFlightRecording:filename=session.jfr MathDoku; open the file in JDK Mission
+// Control or print it with "jfr print --categories MathDoku session.jfr".
+public final class GameEvents {
+    private GameEvents(){
+    }
+
+    @Name("mathdoku.Keystroke")
+    @Label("Keystroke")
+    @Category("MathDoku")
+    @Description("Handling of one change to a cell's text on the FX thread")
+    public static class Keystroke extends Event {
+        @Label("Cell")
+        int cell;
+        @Label("Text")
+        String text;
+    }
+
+    @Name("mathdoku.WinCheck")
+    @Label("Win Check")
+    @Category("MathDoku")
+    public static class WinCheck extends Event {
+        @Label("Won")
+        boolean won;
+    }
+
+    @Name("mathdoku.HighlightPass")
+    @Label("Highlight Pass")
+    @Category("MathDoku")
+    @Description("Bringing the mistake highlights on screen in line with a validation result")
+    public static class HighlightPass extends Event {
+        @Label("Cells Changed")
+        int changed;
+    }
+
+    @Name("mathdoku.Validation")
+    @Label("Validation")
+    @Category("MathDoku")
+    @Description("Checking one board snapshot on the validation thread")
+    public static class Validation extends Event {
+        @Label("Version")
+        long version;
+        @Label("Mistakes")
+        int mistakes;
+    }
+
+    @Name("mathdoku.PuzzleLoad")
+    @Label("Puzzle Load")
+    @Category("MathDoku")
+    public static class PuzzleLoad extends Event {
+        @Label("Source")
+        String source;
+        @Label("Size")
+        int size;
+        @Label("Cages")
+        int cages;
+    }
+}
@@ -0,0 +1,203 @@
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.css.PseudoClass;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.SplittableRandom;
+
+// Compares the window's two grid renderers on generated boards: a GridPane with a BorderPane, TextField
+// and listeners per cell (built the way MathDoku builds it) and CanvasGrid. For each it reports the heap
+// the grid holds, the number of scene nodes and the FX-thread time of a frame in which one cell changes
+// value and one cell's mistake flag flips, from the start of the animation step to the end of layout.
+// Needs JavaFX on the module path, like the window itself.
+public class GridRenderBenchmark extends Application {
+    private static final int[] SIZES = {9, 16, 24, 32};
+    private static final int WARMUP_FRAMES = 200;
+    private static final int FRAMES = 500;
+    private static final PseudoClass ERROR = PseudoClass.getPseudoClass("error");
+    private static final PseudoClass[] JOINED = {PseudoClass.getPseudoClass("joined-top"),
+            PseudoClass.getPseudoClass("joined-right"), PseudoClass.getPseudoClass("joined-bottom"),
+            PseudoClass.getPseudoClass("joined-left")};
+
+    private interface View {
+        void setValue(int cell, int value);
+        void setError(int cell, boolean error);
+    }
+
+    private final StackPane root = new StackPane();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private long seed;
+    private int run = 0;
+    private Board board;
+    private View view;
+    private SplittableRandom random;
+    private LatencyRecorder frames;
+    private int frame;
+    private long frameStart = 0;
+
+    public static void main(String[] args) {
+        launch(GridRenderBenchmark.class, args);
+    }
+
+    @Override
+    public void start(Stage stage) {
+        seed = getParameters().getRaw().isEmpty() ? 42 : Long.parseLong(getParameters().getRaw().get(0));
+        Scene scene = new Scene(root, 900, 900);
+        scene.getStylesheets().add(MathDoku.class.getResource("mathdoku.css").toExternalForm());
+        scene.addPostLayoutPulseListener(() -> {
+            if (frameStart != 0)
+                frames.record(System.nanoTime() - frameStart);
+            frameStart = 0;
+        });
+        stage.setScene(scene);
+        stage.show();
+        System.out.printf("%-5s %-7s %10s %8s %s%n", "size", "grid", "heap KB", "nodes", "frame time");
+        Platform.runLater(this::nextRun);
+    }
+
+    private void nextRun(){
+        if (run == 2 * SIZES.length) {
+            Platform.exit();
+            return;
+        }
+        int size = SIZES[run / 2];
+        boolean canvas = run % 2 == 1;
+        run++;
+
+        root.getChildren().clear();
+        board = null;
+        view = null;
+        long before = usedHeap();
+        PuzzleGenerator generator = new PuzzleGenerator(size, seed);
+        Puzzle puzzle = generator.generateLayout(new int[] {1, 2, 2, 2, 3, 3, 3, 4, 4});
+        board = new Board(puzzle);
+        Parent grid;
+        if (canvas) {
+            CanvasGrid canvasGrid = new CanvasGrid(board, (cell, value) -> {});
+            view = new View() {
+                public void setValue(int cell, int value){
+                    canvasGrid.valueChanged(cell);
+                }
+
+                public void setError(int cell, boolean error){
+                    canvasGrid.setError(cell, error);
+                }
+            };
+            grid = canvasGrid;
+        }
+        else {
+            NodeGrid nodeGrid = new NodeGrid(puzzle);
+            view = nodeGrid;
+            grid = nodeGrid.grid;
+        }
+        root.getChildren().add(grid);
+        root.applyCss();
+        root.layout();
+        long heap = usedHeap() - before;
+        int nodes = countNodes(grid);
+
+        random = new SplittableRandom(seed);
+        frames = new LatencyRecorder();
+        frame = 0;
+        new AnimationTimer() {
+            @Override
+            public void handle(long now){
+                if (frame == WARMUP_FRAMES + FRAMES) {
+                    stop();
+                    System.out.printf("%2dx%-2d %-7s %10d %8d %s%n", size, size, canvas ? "canvas" : "nodes",
+                            heap / 1024, nodes, frames.summary());
+                    Platform.runLater(GridRenderBenchmark.this::nextRun);
+                    return;
+                }
+                if (frame++ == WARMUP_FRAMES)
+                    frames = new LatencyRecorder();
+                frameStart = System.nanoTime();
+                edit(size);
+            }
+        }.start();
+    }
+
+    private void edit(int size){
+        int cell = random.nextInt(size * size);
+        int value = random.nextInt(size + 1);
+        board.setValue(cell / size, cell % size, value);
+        view.setValue(cell, value);
+        view.setError(random.nextInt(size * size), random.nextBoolean());
+    }
+
+    private long usedHeap(){
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static int countNodes(Node node){
+        int count = 1;
+        if (node instanceof Parent)
+            for (Node child : ((Parent) node).getChildrenUnmodifiable())
+                count += countNodes(child);
+        return count;
+    }
+
+    // The node-per-cell grid as MathDoku.createGrid builds it, without the game wired to the listeners.
+    private static final class NodeGrid implements View {
+        final GridPane grid = new GridPane();
+        final BorderPane[] cells;
+        final TextField[] fields;
+
+        NodeGrid(Puzzle puzzle){
+            int size = puzzle.getSize();
+            cells = new BorderPane[size * size];
+            fields = new TextField[size * size];
+            for (int cell = 0; cell < cells.length; cell++) {
+                BorderPane pane = new BorderPane();
+                TextField field = new TextField();
+                pane.getStyleClass().add("cell");
+                field.getStyleClass().add("cell-entry");
+                field.setOnMouseClicked(e -> field.requestFocus());
+                field.textProperty().addListener((observable, oldValue, newValue) -> {});
+                field.setAlignment(Pos.CENTER_RIGHT);
+                pane.setCenter(field);
+                pane.setOnMouseClicked(e -> field.requestFocus());
+                int row = cell / size;
+                int col = cell % size;
+                pane.pseudoClassStateChanged(JOINED[0], row > 0 && puzzle.inSameCage(cell, cell - size));
+                pane.pseudoClassStateChanged(JOINED[1], col < size - 1 && puzzle.inSameCage(cell, cell + 1));
+                pane.pseudoClassStateChanged(JOINED[2], row < size - 1 && puzzle.inSameCage(cell, cell + size));
+                pane.pseudoClassStateChanged(JOINED[3], col > 0 && puzzle.inSameCage(cell, cell - 1));
+                grid.add(pane, col, row);
+                GridPane.setHgrow(pane, Priority.ALWAYS);
+                GridPane.setVgrow(pane, Priority.ALWAYS);
+                cells[cell] = pane;
+                fields[cell] = field;
+            }
+            for (int c = 0; c < puzzle.getCageCount(); c++) {
+                Label label = new Label(puzzle.getCage(c).getOperation());
+                label.getStyleClass().add("cage-label");
+                cells[puzzle.getCage(c).getCell(0)].setLeft(label);
+            }
+        }
+
+        public void setValue(int cell, int value){
+            fields[cell].setText(value == 0 ? "" : Integer.toString(value));
+        }
+
+        public void setError(int cell, boolean error){
+            cells[cell].pseudoClassStateChanged(ERROR, error);
+        }
+    }
+}
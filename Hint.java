@@ -0,0 +1,83 @@
+// One deduction from the current board: either a value that is forced into a cell, or values that can
+// be ruled out for it, with the row, column or cage rule that forces it.
+public final class Hint {
+    public enum Kind {
+        PLACE, ELIMINATE
+    }
+
+    public enum Rule {
+        ROW, COLUMN, ROW_AND_COLUMN, CAGE
+    }
+
+    private final Kind kind;
+    private final int cell;
+    private final int values;
+    private final Rule rule;
+    private final int unit;
+    private final int size;
+    private final String cageOperation;
+
+    // values is a mask with bit v-1 for value v; unit is the row, column or cage index the rule refers to.
+    Hint(Kind kind, int cell, int values, Rule rule, int unit, int size, String cageOperation){
+        this.kind = kind;
+        this.cell = cell;
+        this.values = values;
+        this.rule = rule;
+        this.unit = unit;
+        this.size = size;
+        this.cageOperation = cageOperation;
+    }
+
+    public Kind getKind(){
+        return kind;
+    }
+
+    public int getCell(){
+        return cell;
+    }
+
+    public int getRow(){
+        return cell / size;
+    }
+
+    public int getCol(){
+        return cell % size;
+    }
+
+    // The placed value, or the lowest of the eliminated ones.
+    public int getValue(){
+        return Integer.numberOfTrailingZeros(values) + 1;
+    }
+
+    public int getValues(){
+        return values;
+    }
+
+    public Rule getRule(){
+        return rule;
+    }
+
+    public int getUnit(){
+        return unit;
+    }
+
+    @Override
+    public String toString(){
+        String where = "row " + (getRow() + 1) + ", column " + (getCol() + 1);
+        String reason;
+        if (rule == Rule.ROW)
+            reason = "it is the only place left for it in row " + (unit + 1);
+        else if (rule == Rule.COLUMN)
+            reason = "it is the only place left for it in column " + (unit + 1);
+        else if (rule == Rule.ROW_AND_COLUMN)
+            reason = "every other value is already in its row or column or has been ruled out";
+        else
+            reason = "of its " + cageOperation + " cage";
+        if (kind == Kind.PLACE)
+            return getValue() + " goes in " + where + " because " + reason;
+        StringBuilder list = new StringBuilder();
+        for (int rest = values; rest != 0; rest &= rest - 1)
+            list.append(list.length() == 0 ? "" : ", ").append(Integer.numberOfTrailingZeros(rest) + 1);
+        return list + " cannot go in " + where + " because " + reason;
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.Arrays;
+
+// Finds the next logical step from the player's entries on a board. Rules are tried from the simplest
+// up, so the hint is the one a player is most likely to see: a cell whose row and column leave one
+// value, a value with one place left in a row or column, a value forced by a cage, and finally values a
+// cage rules out. Only the entries themselves are used, not the solution, so a hint never gives away
+// more than the board already implies. Values ruled out by earlier hints count as gone until one of the
+// entries they followed from is changed.
+public class HintEngine {
+    private final Board board;
+    private final Puzzle puzzle;
+    private final Solver solver;
+    private final int size;
+    private final int[] domains;
+    private final int[] ruledOut;
+    private final int[] basis;
+
+    public HintEngine(Board board){
+        this.board = board;
+        this.puzzle = board.getPuzzle();
+        this.solver = new Solver(puzzle);
+        this.size = board.getSize();
+        this.domains = new int[size * size];
+        this.ruledOut = new int[size * size];
+        this.basis = new int[size * size];
+    }
+
+    // Returns null when the board is full, when nothing follows from these rules, or when the entries
+    // already break a rule and no deduction can be trusted.
+    public Hint next(){
+        if (board.hasMistakes())
+            return null;
+        for (int cell = 0; cell < basis.length; cell++)
+            if (basis[cell] != 0 && basis[cell] != board.getValue(cell / size, cell % size)) {
+                Arrays.fill(ruledOut, 0);
+                Arrays.fill(basis, 0);
+                break;
+            }
+        for (int row = 0; row < size; row++)
+            for (int col = 0; col < size; col++) {
+                int cell = row * size + col;
+                int value = board.getValue(row, col);
+                domains[cell] = value != 0 ? 1 << (value - 1) : board.getCandidates(row, col) & ~ruledOut[cell];
+                if (domains[cell] == 0)
+                    return null;
+            }
+
+        for (int cell = 0; cell < domains.length; cell++)
+            if (isEmpty(cell) && isSingle(domains[cell]))
+                return new Hint(Hint.Kind.PLACE, cell, domains[cell], Hint.Rule.ROW_AND_COLUMN, -1, size, null);
+
+        for (int line = 0; line < 2 * size; line++) {
+            int once = 0;
+            int twice = 0;
+            for (int k = 0; k < size; k++) {
+                int domain = domains[lineCell(line, k)];
+                twice |= once & domain;
+                once |= domain;
+            }
+            int singles = once & ~twice;
+            for (int k = 0; k < size && singles != 0; k++) {
+                int cell = lineCell(line, k);
+                int single = domains[cell] & singles;
+                if (single != 0 && isEmpty(cell))
+                    return new Hint(Hint.Kind.PLACE, cell, Integer.lowestOneBit(single),
+                            line < size ? Hint.Rule.ROW : Hint.Rule.COLUMN, line % size, size, null);
+            }
+        }
+
+        Hint elimination = null;
+        for (int c = 0; c < puzzle.getCageCount(); c++) {
+            PuzzleCage cage = puzzle.getCage(c);
+            if (board.isCageFilled(c))
+                continue;
+            int[] support = solver.cageSupport(domains, c);
+            for (int i = 0; i < cage.getCellCount(); i++) {
+                int cell = cage.getCell(i);
+                if (!isEmpty(cell))
+                    continue;
+                if (support[i] == 0)
+                    return null;
+                if (isSingle(support[i]))
+                    return new Hint(Hint.Kind.PLACE, cell, support[i], Hint.Rule.CAGE, c, size, cage.getOperation());
+                if (elimination == null && support[i] != domains[cell])
+                    elimination = new Hint(Hint.Kind.ELIMINATE, cell, domains[cell] & ~support[i], Hint.Rule.CAGE, c,
+                            size, cage.getOperation());
+            }
+        }
+        if (elimination != null) {
+            ruledOut[elimination.getCell()] |= elimination.getValues();
+            for (int cell = 0; cell < basis.length; cell++)
+                basis[cell] = board.getValue(cell / size, cell % size);
+        }
+        return elimination;
+    }
+
+    private boolean isEmpty(int cell){
+        return board.getValue(cell / size, cell % size) == 0;
+    }
+
+    private static boolean isSingle(int mask){
+        return (mask & (mask - 1)) == 0;
+    }
+
+    private int lineCell(int line, int k){
+        return line < size ? line * size + k : k * size + (line - size);
+    }
+}
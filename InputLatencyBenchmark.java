@@ -0,0 +1,85 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Compares the time an edit holds the UI thread when mistakes are checked in place with the time it
+// holds it when the check is handed to ValidationService, and how long the background result then takes
+// to reach the UI thread. A single-thread executor stands in for the FX thread; edits are random cells
+// set to random values, spaced out like fast typing.
+public class InputLatencyBenchmark {
+    private static final int[] SIZES = {9, 16, 32};
+    private static final int WARMUP_EDITS = 20000;
+    private static final int EDITS = 5000;
+    private static final long EDIT_SPACING_NANOS = 200000;
+
+    private static int sink;
+
+    public static void main(String[] args) throws Exception {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 42;
+        for (int size : SIZES) {
+            Puzzle puzzle = new PuzzleGenerator(size, seed).generateLayout(new int[] {1, 2, 2, 2, 3, 3, 3, 4, 4});
+            synchronous(puzzle, seed, WARMUP_EDITS, null);
+            LatencyRecorder inPlace = new LatencyRecorder();
+            synchronous(puzzle, seed, EDITS, inPlace);
+            System.out.printf("%2dx%-2d  checked on the UI thread: %s%n", size, size, inPlace.summary());
+
+            background(puzzle, seed, WARMUP_EDITS, null, null);
+            LatencyRecorder handOff = new LatencyRecorder();
+            LatencyRecorder toPaint = new LatencyRecorder();
+            background(puzzle, seed, EDITS, handOff, toPaint);
+            System.out.printf("%2dx%-2d  handed to the worker:      %s%n", size, size, handOff.summary());
+            System.out.printf("%2dx%-2d  edit to result on UI:      %s%n", size, size, toPaint.summary());
+        }
+    }
+
+    // What an edit cost before: set the value, then look at every cell for mistakes and check for a win.
+    private static void synchronous(Puzzle puzzle, long seed, int edits, LatencyRecorder recorder){
+        int size = puzzle.getSize();
+        Board board = new Board(puzzle);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < edits; i++) {
+            int cell = random.nextInt(size * size);
+            int value = random.nextInt(size + 1);
+            long start = System.nanoTime();
+            board.setValue(cell / size, cell % size, value);
+            int mistakes = 0;
+            for (int c = 0; c < size * size; c++) {
+                int cage = puzzle.getCageOf(c);
+                if (board.hasRowOrColMistake(c / size, c % size) || cage != -1 && board.hasCageMistake(cage))
+                    mistakes++;
+            }
+            sink += mistakes + (board.isGameWon() ? 1 : 0);
+            if (recorder != null)
+                recorder.record(System.nanoTime() - start);
+            LockSupport.parkNanos(EDIT_SPACING_NANOS);
+        }
+    }
+
+    private static void background(Puzzle puzzle, long seed, int edits, LatencyRecorder handOff, LatencyRecorder toPaint)
+            throws InterruptedException {
+        int size = puzzle.getSize();
+        Board board = new Board(puzzle);
+        SplittableRandom random = new SplittableRandom(seed);
+        ExecutorService uiThread = Executors.newSingleThreadExecutor();
+        long[] version = new long[1];
+        ValidationService validator = new ValidationService(puzzle, uiThread, result -> {
+            if (toPaint != null)
+                toPaint.record(System.nanoTime() - result.getSubmitted());
+        });
+        for (int i = 0; i < edits; i++) {
+            int cell = random.nextInt(size * size);
+            int value = random.nextInt(size + 1);
+            long start = System.nanoTime();
+            board.setValue(cell / size, cell % size, value);
+            validator.submit(++version[0], board.getValues());
+            if (handOff != null)
+                handOff.record(System.nanoTime() - start);
+            LockSupport.parkNanos(EDIT_SPACING_NANOS);
+        }
+        validator.close();
+        uiThread.shutdown();
+        uiThread.awaitTermination(1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,64 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// A latency histogram in the style of HdrHistogram: every sample is counted, in buckets whose width grows
+// with the value so that any percentile is within 1% of the true one, and recording is a single lock-free
+// increment. Covers everything from 1 ns to the full range of a long in about 57 KB.
+public class LatencyRecorder {
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int HALF = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int BUCKETS = HALF * (64 - SUB_BUCKET_BITS + 2);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos){
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount(){
+        return count.get();
+    }
+
+    public long getMax(){
+        return max.get();
+    }
+
+    // The p-th percentile (0 to 100) in nanoseconds, or 0 when nothing was recorded. Samples recorded
+    // while this runs may or may not be included.
+    public long percentile(double p){
+        long total = count.get();
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(max.get(), highestEquivalent(i));
+        }
+        return max.get();
+    }
+
+    public String summary(){
+        return String.format("%d samples, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us", getCount(),
+                percentile(50) / 1e3, percentile(99) / 1e3, percentile(99.9) / 1e3, getMax() / 1e3);
+    }
+
+    // Values below 2^SUB_BUCKET_BITS get a bucket each; above that a value keeps its top SUB_BUCKET_BITS
+    // bits, so each doubling of the range is split into HALF buckets.
+    private static int index(long value){
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    private static long highestEquivalent(int index){
+        int shift = Math.max(0, index / HALF - 1);
+        long lowest = (long) (index - shift * HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -1,6 +1,7 @@
 import javafx.animation.RotateTransition;
-import javafx.animation.ScaleTransition;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.css.PseudoClass;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -12,11 +13,10 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Optional;
+import java.util.function.IntSupplier;
 
-import static java.lang.Math.*;
 
 public class MathDoku extends Application {
 
@@ -25,18 +25,54 @@ public class MathDoku extends Application {
     }
     private int size = 0;
     private Cell[][] cells;
-    private GridPane grid = new GridPane();
-    private ArrayList<Cage> cages = new ArrayList<Cage>();
+    private Pane grid = new GridPane();
+    // Boards from this size up are drawn on a single canvas rather than with a text field per cell.
+    private static final int CANVAS_FROM_SIZE = 20;
+    private CanvasGrid canvasGrid;
     private Cell currentCell = null;
     private boolean showMistakes = false;
     private Label message = new Label();
     private Button undo = new Button("UNDO");
     private Button redo = new Button("REDO");
-    private File inputFile = new File("inputFile");
+    private MoveLog history = new MoveLog(MoveLog.DEFAULT_CAPACITY);
+    private boolean replaying = false;
+    private MoveLog.Target replay = this::showValue;
+    private static final File SAVE_FILE = new File(System.getProperty("user.home"), ".mathdoku-save");
+    private AutoSaver autoSaver;
+    private static final File EVENT_FILE = new File(System.getProperty("user.home"), ".mathdoku-events");
+    private GameEventLog eventLog;
+    private ValidationService validator;
+    private ValidationService.Result lastResult;
+    private long version = 0;
+    private long restoredVersion = -1;
+    private BitSet shownErrors = new BitSet();
+    private BitSet errors = new BitSet();
+    // Latency of each instrumented path over the session, printed when the window closes. The same paths
+    // are GameEvents for Flight Recorder.
+    private LatencyRecorder keystrokes = new LatencyRecorder();
+    private LatencyRecorder inputToPaint = new LatencyRecorder();
+    private LatencyRecorder winChecks = new LatencyRecorder();
+    private LatencyRecorder highlightPasses = new LatencyRecorder();
+    private LatencyRecorder loads = new LatencyRecorder();
+    private LatencyRecorder stylePass = new LatencyRecorder();
+    private boolean styleChanged = false;
+    // Set while a keystroke is handled or a value is put in from outside the input. The cell's text listener
+    // fires again in both cases, and that is not another keystroke to record.
+    private boolean inKeystroke = false;
+    private long pulseStart = 0;
+    private static final PseudoClass ERROR = PseudoClass.getPseudoClass("error");
+    private static final PseudoClass JOINED_TOP = PseudoClass.getPseudoClass("joined-top");
+    private static final PseudoClass JOINED_RIGHT = PseudoClass.getPseudoClass("joined-right");
+    private static final PseudoClass JOINED_BOTTOM = PseudoClass.getPseudoClass("joined-bottom");
+    private static final PseudoClass JOINED_LEFT = PseudoClass.getPseudoClass("joined-left");
+    private static final PseudoClass[] FONT_SIZES = {PseudoClass.getPseudoClass("small-font"),
+            PseudoClass.getPseudoClass("medium-font"), PseudoClass.getPseudoClass("large-font")};
     private BorderPane gameGrid = new BorderPane();
-    private int[] cellsFrequency = new int[63];
+    private Board board;
+    private HintEngine hintEngine;
     private BorderPane centerBorderPane = new BorderPane();
     private HBox topHbox = new HBox(10);
+    private GridPane mouseNumbers = new GridPane();
     private RotateTransition rotateTransition = new RotateTransition();
 
     @Override
@@ -45,27 +81,84 @@ public class MathDoku extends Application {
         setUpButtons();
         setUpMouseNumbers();
         gameGrid.setTop(new VBox(message,topHbox));
+        gameGrid.getStyleClass().add("game");
 
-        {
-            size = 6;
-            cells = new Cell[size][size];
-            createGrid();
-            createCages(size);
-            centerBorderPane.setCenter(grid);
-        }
+        autoSaver = new AutoSaver(SAVE_FILE, this::snapshot, Platform::runLater, 500);
+        eventLog = new GameEventLog(EVENT_FILE, 1000);
+        if (!resume())
+            displayPuzzle(defaultPuzzle());
 
-        grid.setPrefSize(400,300);
+        if (canvasGrid == null)
+            grid.setPrefSize(400,300);
         gameGrid.setCenter(centerBorderPane);
         //gameGrid.setBottom(message);
 
         gameGrid.setPadding(new Insets(30,30,30,30));
 
         Scene scene = new Scene(gameGrid);
+        scene.getStylesheets().add(MathDoku.class.getResource("mathdoku.css").toExternalForm());
+        // Times the CSS and layout pass of each pulse that follows a keystroke or a repaint of mistakes.
+        scene.addPreLayoutPulseListener(() -> {
+            if (styleChanged)
+                pulseStart = System.nanoTime();
+            styleChanged = false;
+        });
+        scene.addPostLayoutPulseListener(() -> {
+            if (pulseStart != 0)
+                stylePass.record(System.nanoTime() - pulseStart);
+            pulseStart = 0;
+        });
 
         primaryStage.setScene(scene);
         primaryStage.show();
     }
 
+    @Override
+    public void stop() {
+        autoSaver.close();
+        eventLog.close();
+        validator.close();
+        System.out.println("Keystroke:           " + keystrokes.summary());
+        System.out.println("Input to paint:      " + inputToPaint.summary());
+        System.out.println("Win check:           " + winChecks.summary());
+        System.out.println("Highlight pass:      " + highlightPasses.summary());
+        System.out.println("Puzzle load:         " + loads.summary());
+        System.out.println("CSS and layout pass: " + stylePass.summary());
+    }
+
+    public byte[] snapshot(){
+        return new SavedGame(board.getPuzzle(), board.getValues(), history.getMoves(), history.getPosition(), showMistakes).encode();
+    }
+
+    // Puts back the game that was open when the window was last closed; false when there is none.
+    public boolean resume(){
+        SavedGame game;
+        try {
+            byte[] data = AutoSaver.load(SAVE_FILE);
+            if (data == null)
+                return false;
+            game = SavedGame.decode(data);
+        } catch (IOException e) {
+            message.setText("Could not restore the last game: " + e.getMessage());
+            message.setTextFill(Color.RED);
+            return false;
+        }
+        displayPuzzle(game.getPuzzle());
+        int[] values = game.getValues();
+        replaying = true;
+        eventLog.beginAction(GameEventLog.RESTORE);
+        for (int cell = 0; cell < values.length; cell++)
+            showValue(cell, values[cell]);
+        eventLog.endAction();
+        replaying = false;
+        restoredVersion = version;
+        history.restore(game.getMoves(), game.getPosition());
+        checkUndoAndRedo();
+        if (game.isShowMistakes())
+            toggleShowMistakes();
+        return true;
+    }
+
     public void setUpFontSizeButtons(){
         VBox vBox = new VBox(15);
         vBox.setAlignment(Pos.CENTER);
@@ -74,26 +167,27 @@ public class MathDoku extends Application {
 
         Button smallFont = new Button("Small font");
         smallFont.setMinWidth(vBox.getPrefWidth());
-        smallFont.setOnAction(e -> changeFontSize(smallFont.getText()));
+        smallFont.setOnAction(e -> changeFontSize(0));
 
         Button mediumFont = new Button("Medium font");
         mediumFont.setMinWidth(vBox.getPrefWidth());
-        mediumFont.setOnAction(e -> changeFontSize(mediumFont.getText()));
+        mediumFont.setOnAction(e -> changeFontSize(1));
 
         Button largeFont = new Button("Large font");
         largeFont.setMinWidth(vBox.getPrefWidth());
-        largeFont.setOnAction(e -> changeFontSize(largeFont.getText()));
+        largeFont.setOnAction(e -> changeFontSize(2));
 
         vBox.getChildren().addAll(smallFont,mediumFont,largeFont);
         topHbox.getChildren().add(vBox);
         //centerBorderPane.setLeft(vBox);
     }
 
-    public void changeFontSize(String buttonType){
-        for (int i=0; i<size; i++)
-            for (int j=0; j<size; j++){
-                cells[i][j].changeFontSize(buttonType);
-            }
+    // The font size is a state of the whole window, so changing it restyles no cell directly.
+    public void changeFontSize(int fontSize){
+        for (int i = 0; i < FONT_SIZES.length; i++)
+            gameGrid.pseudoClassStateChanged(FONT_SIZES[i], i == fontSize);
+        if (canvasGrid != null)
+            canvasGrid.setFontSize(fontSize);
     }
 
     public void setUpMouseNumbers(){
@@ -101,22 +195,25 @@ public class MathDoku extends Application {
         vBox.setPadding(new Insets(10,10,10,10));
         vBox.setAlignment(Pos.CENTER);
 
-        GridPane mouseNumbers = new GridPane();
+        vBox.getChildren().addAll(mouseNumbers);
+
+        topHbox.getChildren().add(mouseNumbers);
+        //centerBorderPane.setRight(vBox);
+    }
 
-        for (int j=0; j<8; j++) {
+    // One button per digit of the current grid plus backspace, laid out in a roughly square block.
+    public void fillMouseNumbers(){
+        mouseNumbers.getChildren().clear();
+        int columns = (int) Math.ceil(Math.sqrt(size + 1));
+        for (int j=0; j<size; j++) {
             Button b = new Button(Integer.toString(j + 1));
             b.setOnAction(e -> handleButton(b.getText()));
-            mouseNumbers.add(b, j%3, j/3);
+            mouseNumbers.add(b, j%columns, j/columns);
         }
 
         Button backspace = new Button("<=");
         backspace.setOnAction(e -> handleButton(backspace.getText()));
-        mouseNumbers.add(backspace, 2,2);
-
-        vBox.getChildren().addAll(mouseNumbers);
-
-        topHbox.getChildren().add(mouseNumbers);
-        //centerBorderPane.setRight(vBox);
+        mouseNumbers.add(backspace, size%columns, size/columns);
     }
 
     public void setUpButtons(){
@@ -139,7 +236,10 @@ public class MathDoku extends Application {
         Button showMistakes = new Button("MISTAKES");
         showMistakes.setOnAction(e -> toggleShowMistakes());
 
-        buttons.getChildren().addAll(undo,redo,clearBoard,loadFromFile,loadFromInput,showMistakes);
+        Button hint = new Button("HINT");
+        hint.setOnAction(e -> showHint());
+
+        buttons.getChildren().addAll(undo,redo,clearBoard,loadFromFile,loadFromInput,showMistakes,hint);
         buttons.setAlignment(Pos.CENTER);
         buttons.setHgrow(undo, Priority.ALWAYS);
         buttons.setHgrow(redo, Priority.ALWAYS);
@@ -147,6 +247,7 @@ public class MathDoku extends Application {
         buttons.setHgrow(loadFromInput, Priority.ALWAYS);
         buttons.setHgrow(loadFromFile, Priority.ALWAYS);
         buttons.setHgrow(showMistakes, Priority.ALWAYS);
+        buttons.setHgrow(hint, Priority.ALWAYS);
 
         topHbox.getChildren().add(buttons);
         //gameGrid.setTop(buttons);
@@ -168,181 +269,196 @@ public class MathDoku extends Application {
         alert.setTitle("Confirm Text Input");
         alert.setHeaderText("Write the code for the grid and confirm");
 
-        textArea.textProperty().addListener(((observableValue, oldValue, newValue) -> writeToFile(newValue)));
         alert.getDialogPane().setContent(textArea);
         Optional<ButtonType> buttonType = alert.showAndWait();
         if (buttonType.isPresent() && buttonType.get() == ButtonType.OK) {
-            displayGridFromFile(inputFile);
+            displayGridFromText(textArea.getText());
             currentCell = null;
         }
     }
 
-    public void displayGridFromFile(File inputFile){
-        message.setText("");
-        cellsFrequency = new int[64];
-        if (beforeGridCreation(inputFile)) {
-            centerBorderPane.getChildren().remove(grid);
-            cages.clear();
-            currentCell = null;
-            cells = new Cell[size][size];
-            createGrid();
-            createCagesFromFile(inputFile);
-            centerBorderPane.setCenter(grid);
-        }
+    public void displayGridFromText(String text){
+        load("text input", () -> {
+            try (PuzzleReader reader = new PuzzleReader(new StringReader(text))) {
+                Puzzle puzzle = reader.read();
+                if (puzzle == null)
+                    throw new PuzzleFormatException("No cages were given", 1, 1);
+                return puzzle;
+            }
+        });
     }
 
-    public void writeToFile(String newValue){
-        try {
-            OutputStream outputStream = new FileOutputStream(inputFile);
-            outputStream.write(newValue.getBytes());
-        }
-        catch (Exception ex){
-            System.err.println("File exception");
-        }
+    public void displayGridFromFile(File inputFile){
+        load(inputFile.getPath(), () -> PuzzleReader.readFile(inputFile));
     }
 
-    public void createCagesFromFile(File file){
-        try {
-            BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
-            while (bufferedReader.ready()) {
-                String[] splitStrings = bufferedReader.readLine().split(" ");
-                cages.add(new Cage(getCellsFromString(splitStrings[1]), splitStrings[0]));
-            }
-        }catch (Exception e){
-            System.err.println("Something went wrong with reading from file");
-        }
+    private interface PuzzleSource {
+        Puzzle read() throws IOException;
     }
 
-    public boolean beforeGridCreation(File file) {
-        int maximum = 0;
+    // Reads and shows a puzzle, timed for loads and as a GameEvents.PuzzleLoad; a puzzle that cannot be
+    // read leaves its error in the message line and is not recorded.
+    private void load(String source, PuzzleSource reader){
+        GameEvents.PuzzleLoad event = new GameEvents.PuzzleLoad();
+        event.begin();
+        long start = System.nanoTime();
+        message.setText("");
+        Puzzle puzzle;
         try {
-            BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
-            while (bufferedReader.ready()) {
-                String[] splitStrings = bufferedReader.readLine().split(" ");
-                String[] splitCell = splitStrings[1].split(",");
-                for (String cell : splitCell) {
-                    int value = Integer.parseInt(cell);
-                    cellsFrequency[value-1] ++;
-                    if (value > maximum) {
-                        maximum = value;
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Something went wrong with reading from file");
-        }
-        int newSize = (int) ceil(sqrt(maximum));
-        System.out.println(newSize);
-        if (cellsAreValid(file, newSize)) {
-            this.size = newSize;
-            return true;
+            puzzle = reader.read();
+        } catch (IOException e) {
+            message.setText(e.getMessage());
+            message.setTextFill(Color.RED);
+            return;
+        }
+        displayPuzzle(puzzle);
+        loads.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.size = puzzle.getSize();
+            event.cages = puzzle.getCageCount();
+            event.commit();
+        }
+    }
+
+    public void displayPuzzle(Puzzle puzzle){
+        centerBorderPane.getChildren().remove(grid);
+        currentCell = null;
+        size = puzzle.getSize();
+        board = new Board(puzzle);
+        hintEngine = new HintEngine(board);
+        if (validator != null)
+            validator.close();
+        validator = new ValidationService(puzzle, Platform::runLater, this::validated);
+        lastResult = null;
+        shownErrors.clear();
+        version++;
+        history.clear();
+        checkUndoAndRedo();
+        eventLog.startSession(puzzle);
+        fillMouseNumbers();
+        if (size >= CANVAS_FROM_SIZE) {
+            cells = null;
+            canvasGrid = new CanvasGrid(board, this::editCell);
+            grid = canvasGrid;
         }
         else {
-            return false;
+            canvasGrid = null;
+            cells = new Cell[size][size];
+            createGrid();
+            for (int c = 0; c < puzzle.getCageCount(); c++) {
+                PuzzleCage cage = puzzle.getCage(c);
+                new Cage(getCells(cage), cage.getOperation());
+            }
         }
+        centerBorderPane.setCenter(grid);
+        autoSaver.changed();
     }
 
-    public boolean cellsAreValid(File file, int size){
-        if (!cellsArePartOfOneCage()){
-            message.setText("Cells are part of more than only one cage");
-            message.setTextFill(Color.RED);
-            return false;
+    public static Puzzle defaultPuzzle(){
+        String lines = "11+ 1,7\n2% 2,3\n20x 4,10\n6x 5,6,12,18\n3- 8,9\n3% 11,17\n240x 13,14,19,20\n6x 15,16\n"
+                + "6x 21,27\n7+ 22,28,29\n30x 23,24\n6x 25,26\n9+ 30,36\n8+ 31,32,33\n2% 34,35\n";
+        try (PuzzleReader reader = new PuzzleReader(new StringReader(lines))) {
+            return reader.read();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        try {
-            BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
-            while (bufferedReader.ready()){
-                String[] splitStrings = bufferedReader.readLine().split(" ");
-                String[] splitCell = splitStrings[1].split(",");
-                if (!cellsAreAdjacent(splitCell, size)){
-                    message.setText("Cells given in one cage are not adjacent");
-                    message.setTextFill(Color.RED);
-                    return false;
-                }
-                message.setText("");
-            }
-        }catch (Exception e){
-            System.err.println("Something went wrong with reading from file");
-        }
-        return true;
     }
 
-
-    public boolean cellsArePartOfOneCage(){
-        for (int i=0; i<size*size; i++){
-            if (cellsFrequency[i] > 1)
-                return false;
+    public Cell[] getCells(PuzzleCage cage){
+        Cell[] cellsInACage = new Cell[cage.getCellCount()];
+        for (int i = 0; i < cellsInACage.length; i++) {
+            int value = cage.getCell(i);
+            cellsInACage[i] = cells[value / size][value % size];
         }
-        return true;
+        return cellsInACage;
     }
 
-    public boolean cellsAreAdjacent(String[] cells, int size){
-        int noOfCells = cells.length;
-        for (int i=0; i<noOfCells; i++) {
-            int value = Integer.parseInt(cells[i]);
-            for (int j = i + 1; j < noOfCells; j++) {
-                int neighbourValue = Integer.parseInt(cells[j]);
-                boolean valid = false;
-                if (value == neighbourValue + 1 || value == abs(neighbourValue - 1) || value == neighbourValue + size || value == abs(neighbourValue - size)) {
-                    valid = true;
-                }
-                if (valid == false) {
-                    for (int k = 0; k < noOfCells; k++) {
-                        int otherNeighbour = Integer.parseInt(cells[k]);
-                        if (otherNeighbour != neighbourValue) {
-                            if (otherNeighbour == neighbourValue + 1 || otherNeighbour == abs(neighbourValue - 1) || otherNeighbour == neighbourValue + size || otherNeighbour == abs(neighbourValue - size)) {
-                                valid = true;
-                            }
-                        }
-                        if (otherNeighbour != value){
-                            if (value == otherNeighbour + 1 || value == abs(otherNeighbour - 1) || value == otherNeighbour + size || value == abs(otherNeighbour - size)) {
-                                valid = true;
-                            }
-                        }
-                    }
-                }
-                if (valid == false)
-                    return false;
-            }
+    public void undo(){
+        replaying = true;
+        eventLog.beginAction(GameEventLog.UNDO);
+        history.undo(replay);
+        eventLog.endAction();
+        replaying = false;
+        checkUndoAndRedo();
+    }
+
+    public void redo(){
+        replaying = true;
+        eventLog.beginAction(GameEventLog.REDO);
+        history.redo(replay);
+        eventLog.endAction();
+        replaying = false;
+        checkUndoAndRedo();
+    }
+
+    public void setCellValue(int cell, int value){
+        int old = board.getValue(cell / size, cell % size);
+        board.setValue(cell / size, cell % size, value);
+        if (old == value)
+            return;
+        if (!replaying)
+            history.record(cell, old, value);
+        eventLog.cellChanged(cell, value);
+        if (canvasGrid != null)
+            canvasGrid.valueChanged(cell);
+        autoSaver.changed();
+        validator.submit(++version, board.getValues());
+    }
+
+    // Puts a value in a cell from outside the cell's own input, as undo, clear and restore do.
+    public void showValue(int cell, int value){
+        if (canvasGrid != null)
+            setCellValue(cell, value);
+        else {
+            boolean outer = inKeystroke;
+            inKeystroke = true;
+            cells[cell / size][cell % size].showValue(value);
+            inKeystroke = outer;
         }
-        return true;
     }
 
+    public void showError(int cell, boolean error){
+        if (canvasGrid != null)
+            canvasGrid.setError(cell, error);
+        else
+            cells[cell / size][cell % size].setError(error);
+    }
 
-    public Cell[] getCellsFromString(String commaSeparatedCells){
-        String[] splitCell = commaSeparatedCells.split(",");
-        Cell[] cellsInACage = new Cell[splitCell.length];
-        int index = 0;
-        int value ;
-        for (String cell : splitCell){
-            value = Integer.parseInt(cell) - 1;
-            cellsInACage[index] = cells[value / size][value % size];
-            System.out.println(value/size + " " + value%size);
-            index ++;
-        }
-        System.out.println("***********");
-        return cellsInACage;
+    // Input typed or clicked into the canvas grid.
+    public void editCell(int cell, int value){
+        keystroke(cell, Integer.toString(value), () -> setCellValue(cell, value));
     }
 
-    public void undo(){
-        if (currentCell != null) {
-            int undo = currentCell.getUndoValue();
-            int val = currentCell.getVal();
-            currentCell.setTextField(Integer.toString(undo));
-            currentCell.setUndoValue(-1);
-            currentCell.setRedoValue(val);
-            currentCell.checkUndoAndRedo();
+    // Handles one keystroke, timed for keystrokes and as a GameEvents.Keystroke; a nested call only runs
+    // the handling.
+    private void keystroke(int cell, String text, Runnable handling){
+        if (inKeystroke) {
+            handling.run();
+            return;
+        }
+        GameEvents.Keystroke event = new GameEvents.Keystroke();
+        event.begin();
+        long start = System.nanoTime();
+        styleChanged = true;
+        inKeystroke = true;
+        try {
+            handling.run();
+            checkUndoAndRedo();
+        } finally {
+            inKeystroke = false;
+        }
+        keystrokes.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.cell = cell;
+            event.text = text;
+            event.commit();
         }
     }
 
-    public void redo(){
-        if (currentCell != null) {
-            int redo = currentCell.getRedoValue();
-            int val = currentCell.getVal();
-            currentCell.setTextField(Integer.toString(redo));
-            currentCell.setUndoValue(val);
-            currentCell.setRedoValue(-1);
-            currentCell.checkUndoAndRedo();
-        }
+    public void checkUndoAndRedo(){
+        undo.setDisable(!history.canUndo());
+        redo.setDisable(!history.canRedo());
     }
 
     public void clearBoardAlert(){
@@ -353,178 +469,99 @@ public class MathDoku extends Application {
     }
 
     public void clearTheBoard(){
-        for (int i=0; i<size; i++)
-            for (int j=0; j<size; j++){
-                cells[i][j].setTextField("");
-            }
+        history.beginGroup();
+        eventLog.beginAction(GameEventLog.CLEAR);
+        for (int cell = 0; cell < size * size; cell++)
+            showValue(cell, 0);
+        eventLog.endAction();
+        history.endGroup();
+        checkUndoAndRedo();
         message.setText("");
     }
 
     public void toggleShowMistakes(){
         if (showMistakes) {
             showMistakes = false;
-            System.out.println(showMistakes);
             unHighlightAllCells();
-
         }
         else {
             showMistakes = true;
-            System.out.println(showMistakes);
-            highlightMistakesCages();
-            highlightMistakesRowsAndCols();
-        }
-    }
-
-    public void unHighlightAllCells(){
-        for (int i=0; i<size; i++)
-            for (int j=0; j<size; j++) {
-                cells[i][j].unHighlightCell("RowsAndCols");
-                cells[i][j].unHighlightCell("Cages");
-            }
-    }
-
-
-    public boolean isGameWon(){
-        if (areCagesCorrect() && areRowsAndColsCorrect())
-            return true;
-        return false;
-    }
-
-    public boolean areCagesCorrect(){
-        for (Cage cage : cages) {
-            if (!cage.isCageCorrect())
-                return false;
-        }
-        return true;
-    }
-
-    public boolean areRowsAndColsCorrect(){
-        for (int i=0 ; i<size; i++)
-            for (int j=0; j<size; j++){
-                for (int r=0; r<size; r++) {
-                    if (i != r)
-                        if (cells[i][j].getVal() == cells[r][j].getVal()) {
-                            if (cells[i][j].getVal()!=0 && cells[r][j].getVal()!=0)
-                                return false;
-                        }
-                }
-                for (int c=0; c<size; c++) {
-                    if (j != c)
-                        if (cells[i][j].getVal() == cells[i][c].getVal()) {
-                            if (cells[i][j].getVal()!=0 && cells[i][c].getVal()!=0)
-                                return false;
-                        }
-                }
-            }
-        return true;
-    }
-
-    public void highlightMistakesRowsAndCols(){
-        boolean areMistakes;
-        for (int i=0 ; i<size; i++) {
-            for (int j = 0; j < size; j++) {
-                areMistakes = false;
-                for (int c = 0; c < size; c++) {
-                    if (j != c)
-                        if (cells[i][j].getVal() == cells[i][c].getVal()) {
-                            if ((cells[i][j].getVal() != 0) && (cells[i][c].getVal() != 0)) {
-                                areMistakes = true;
-                            }
-                        }
-                }
-                if (areMistakes) {
-                    for (int col = 0; col < size; col++) {
-                        cells[i][col].highlightCell("RowsAndCols");
-                        //System.out.println("Call highlight cell at cols");
-                    }
-                }
-                areMistakes = false;
-                for (int r = 0; r < size; r++) {
-                    if (i != r)
-                        if (cells[i][j].getVal() == cells[r][j].getVal()) {
-                            if ((cells[i][j].getVal() != 0) && (cells[r][i].getVal() != 0)) {
-                                areMistakes = true;
-                            }
-                        }
-                }
-                if (areMistakes) {
-                    for (int row = 0; row < size; row++) {
-                        cells[row][j].highlightCell("RowsAndCols");
-                        //System.out.println("Call highlight cell at rows");
-                    }
-                }
-            }
-        }
-    }
-
-    public void highlightMistakesCages(){
-        for (Cage cage : cages){
-            if (cage.areCellsFilled()) {
-                if (!cage.isCageCorrect()) {
-                    Cell[] cells = cage.getCells();
-                    for (Cell cell : cells)
-                        cell.highlightCell("Cages");
-                    }
-            }
+            if (lastResult != null)
+                showMistakes(lastResult);
         }
+        eventLog.mistakesShown(showMistakes);
+        autoSaver.changed();
     }
 
-    public void unHighlightCorrectRowsAndCols(){
-        for (int i=0 ; i<size; i++)
-            for (int j=0; j<size; j++) {
-                boolean isCorrect = true;
-                for (int r = 0; r < size; r++) {
-                    if (i != r) {
-                        if (cells[i][j].getVal() == cells[r][j].getVal()) {
-                            if ((cells[i][j].getVal() != 0) && (cells[r][j].getVal() != 0)) {
-                                isCorrect = false;
-                            }
-                        }
-                    }
-                }
-                if (isCorrect) {
-                    for (int row = 0; row < size; row++) {
-                        cells[row][j].unHighlightCell("RowsAndCols");
-                        //System.out.println("Unhighlighted at cell  " + row + " " + j);
-                    }
-                }
-                isCorrect = true;
-                for (int c = 0; c < size; c++) {
-                    if (j != c) {
-                        if (cells[i][j].getVal() == cells[i][c].getVal()) {
-                            if ((cells[i][j].getVal() != 0) && (cells[i][c].getVal() != 0)) {
-                                isCorrect = false;
-                            }
-                        }
-                    }
-                }
-                if (isCorrect) {
-                    for (int col = 0; col < size; col++) {
-                        cells[i][col].unHighlightCell("RowsAndCols");
-                        //System.out.println("Unhighlighted at cell  " + i + " " + col);
-                    }
-                }
-            }
+    public void showHint(){
+        Hint hint = hintEngine.next();
+        if (hint == null)
+            message.setText(board.hasMistakes() ? "Fix the mistakes first" : "No hint from the current entries");
+        else
+            message.setText(hint.toString());
+        message.setTextFill(Color.BLACK);
     }
 
-    public void unHighlightCorrectCages(){
-        for (Cage cage : cages){
-            Cell[] cells = cage.getCells();
-            if (!cage.areCellsFilled()){
-                for (Cell cell : cells)
-                    cell.unHighlightCell("Cages");
-            }
-            if (cage.areCellsFilled()) {
-                if (cage.isCageCorrect()) {
-                    for (Cell cell : cells)
-                        cell.unHighlightCell("Cages");
-                }
-            }
-        }
+    public void unHighlightAllCells(){
+        highlight(() -> {
+            int changed = shownErrors.cardinality();
+            for (int cell = shownErrors.nextSetBit(0); cell >= 0; cell = shownErrors.nextSetBit(cell + 1))
+                showError(cell, false);
+            shownErrors.clear();
+            return changed;
+        });
+    }
+
+    // Runs a pass over the mistake highlights that returns how many cells it changed, timed for
+    // highlightPasses and as a GameEvents.HighlightPass.
+    private void highlight(IntSupplier pass){
+        GameEvents.HighlightPass event = new GameEvents.HighlightPass();
+        event.begin();
+        long start = System.nanoTime();
+        int changed = pass.getAsInt();
+        highlightPasses.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.changed = changed;
+            event.commit();
+        }
+    }
+
+    // Called on the FX thread with the newest check; a result for an older version of the board is
+    // dropped because the check of the current one is already on its way.
+    public void validated(ValidationService.Result result){
+        if (result.getVersion() != version)
+            return;
+        lastResult = result;
+        if (showMistakes)
+            showMistakes(result);
+        checkIfWon(result);
+        inputToPaint.record(System.nanoTime() - result.getSubmitted());
+    }
+
+    // Works out which cells are in error and flips the state of only those that differ from the screen.
+    public void showMistakes(ValidationService.Result result){
+        highlight(() -> {
+            errors.clear();
+            for (int cell = 0; cell < size * size; cell++)
+                if (result.getMistakes(cell) != 0)
+                    errors.set(cell);
+            BitSet flipped = (BitSet) errors.clone();
+            flipped.xor(shownErrors);
+            for (int cell = flipped.nextSetBit(0); cell >= 0; cell = flipped.nextSetBit(cell + 1))
+                showError(cell, errors.get(cell));
+            BitSet shown = shownErrors;
+            shownErrors = errors;
+            errors = shown;
+            return flipped.cardinality();
+        });
     }
 
     public void handleButton(String buttonValue){
-       if (currentCell != null) {
+       if (canvasGrid != null) {
+           canvasGrid.type(buttonValue);
+           checkUndoAndRedo();
+       }
+       else if (currentCell != null) {
            currentCell.setTextField(buttonValue);
        }
     }
@@ -541,55 +578,6 @@ public class MathDoku extends Application {
         this.grid = grid;
     }
 
-    public void createCages(int size){
-        if (size == 6) {
-            Cell[] cells0 = new Cell[]{cells[0][0], cells[1][0]};
-            cages.add(new Cage(cells0, "11+"));
-
-            Cell[] cells1 = new Cell[]{cells[0][1], cells[0][2]};
-            cages.add(new Cage(cells1, "2%"));
-
-            Cell[] cells2 = new Cell[]{cells[0][3], cells[1][3]};
-            cages.add(new Cage(cells2, "20x"));
-
-            Cell[] cells3 = new Cell[]{cells[0][4], cells[0][5], cells[1][5], cells[2][5]};
-            cages.add(new Cage(cells3, "6x"));
-
-            Cell[] cells4 = new Cell[]{cells[1][1], cells[1][2]};
-            cages.add(new Cage(cells4, "3-"));
-
-            Cell[] cells5 = new Cell[]{cells[1][4], cells[2][4]};
-            cages.add(new Cage(cells5, "3%"));
-
-            Cell[] cells6 = new Cell[]{cells[2][0], cells[2][1], cells[3][0], cells[3][1]};
-            cages.add(new Cage(cells6, "240x"));
-
-            Cell[] cells7 = new Cell[]{cells[2][2], cells[2][3]};
-            cages.add(new Cage(cells7, "6x"));
-
-            Cell[] cells8 = new Cell[]{cells[3][2], cells[4][2]};
-            cages.add(new Cage(cells8, "6x"));
-
-            Cell[] cells9 = new Cell[]{cells[3][3], cells[4][3], cells[4][4]};
-            cages.add(new Cage(cells9, "7+"));
-
-            Cell[] cells10 = new Cell[]{cells[3][4], cells[3][5]};
-            cages.add(new Cage(cells10, "30x"));
-
-            Cell[] cells11 = new Cell[]{cells[4][0], cells[4][1]};
-            cages.add(new Cage(cells11, "6x"));
-
-            Cell[] cells12 = new Cell[]{cells[4][5], cells[5][5]};
-            cages.add(new Cage(cells12, "9+"));
-
-            Cell[] cells13 = new Cell[]{cells[5][0], cells[5][1], cells[5][2]};
-            cages.add(new Cage(cells13, "8+"));
-
-            Cell[] cells14 = new Cell[]{cells[5][3], cells[5][4]};
-            cages.add(new Cage(cells14, "2%"));
-        }
-    }
-
     public boolean isNumeric(String str) {
         if (str == null)
             return false;
@@ -601,8 +589,12 @@ public class MathDoku extends Application {
         }
     }
 
-    public void checkIfWon(){
-        if (isGameWon()) {
+    public void checkIfWon(ValidationService.Result result){
+        GameEvents.WinCheck event = new GameEvents.WinCheck();
+        event.begin();
+        long start = System.nanoTime();
+        boolean won = result.isWon() && result.getVersion() != restoredVersion;
+        if (won) {
             rotateTransition.setDuration(Duration.millis(5000));
             rotateTransition.setNode(grid);
             rotateTransition.setByAngle(360);
@@ -614,45 +606,31 @@ public class MathDoku extends Application {
             alert.setHeaderText("CONGRATULATIONS!");
             alert.setContentText("YOU WON THE GAME!");
 
-            alert.showAndWait();
+            alert.show();
             //message.setText("CONGRATS YOU WON");
             //message.setTextFill(Color.GREEN);
         }
         else {
             message.setText("");
         }
-    }
-
-    public Cage getCage(Cell cell){
-        for (Cage cage :cages){
-            Cell[] cells1 = cage.getCells();
-            for (Cell cell1 : cells1)
-                if (cell1 == cell)
-                    return cage;
+        winChecks.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.won = won;
+            event.commit();
         }
-        return null;
     }
 
     public class Cell extends BorderPane {
         private Label operation;
         private TextField textField = new TextField();
-        private String textFieldStyle;
-        private String style;
-        private int val = 0;
         private int row;
         private int col;
-        private boolean isHighlightedRowsAndCols = false;
-        private boolean isHighlightedCages = false;
-        private int undoValue = -1;
-        private int redoValue = -1;
 
         public Cell(int row, int col){
             this.row = row;
             this.col = col;
-            this.style = "-fx-border-color: black; -fx-background-color: white";
-            this.setStyle(style);
-            textFieldStyle = "-fx-border-color: white; -fx-font-size: 30; -fx-background-color: white";
-            textField.setStyle(textFieldStyle);
+            this.getStyleClass().add("cell");
+            textField.getStyleClass().add("cell-entry");
             textField.setOnMouseClicked(e -> handleClick());
             textField.textProperty().addListener(((observableValue, oldValue, newValue) -> typeValue(newValue, oldValue)));
             this.setCenter(textField);
@@ -660,181 +638,86 @@ public class MathDoku extends Application {
             this.setOnMouseClicked(e -> handleClick());
         }
 
-        public void checkUndoAndRedo(){
-            if (undoValue == -1)
-                undo.setDisable(true);
-            else
-                undo.setDisable(false);
-
-            if (redoValue == -1)
-                redo.setDisable(true);
-            else
-                redo.setDisable(false);
-        }
-
         public void typeBackspace(){
-            System.out.println("Enter a valid number");
-            if (val != 0) {
-                undoValue = val;
-            }
-            val = 0;
-            if (showMistakes) {
-                unHighlightCorrectRowsAndCols();
-                unHighlightCorrectCages();
-                highlightMistakesRowsAndCols();
-            }
+            setVal(0);
         }
 
+        // The entry is too large for the grid, so the digits typed after the old value start a new one.
         public void typeLargerValue(String newValue, String oldValue){
-            boolean valid = false;
-            int novelValue = Integer.parseInt(Character.toString(newValue.charAt(1)));
-            for (int i = 1; i <= size; i++) {
-                if (novelValue == i)
-                    valid = true;
-            }
-            if (valid) {
-                this.setTextField(Integer.toString(novelValue));
-            }
+            String typed = newValue.startsWith(oldValue) ? newValue.substring(oldValue.length()) : newValue.substring(newValue.length() - 1);
+            if (isNumeric(typed) && checkTypeIsValid(Integer.parseInt(typed)))
+                this.setTextField(Integer.toString(Integer.parseInt(typed)));
             else
                 this.setTextField(oldValue);
-            if (showMistakes) {
-                showMistakes();
-            }
         }
 
         public boolean checkTypeIsValid(int valuePassed){
-            boolean valid = false;
-            for (int i = 1; i <= size; i++) {
-                if (valuePassed == i)
-                    valid = true;
-            }
-            return valid;
+            return valuePassed >= 1 && valuePassed <= size;
         }
 
         public void typedCorrect(int valuePassed){
-            if (val != 0 && val != valuePassed){
-                undoValue = val;
-            }
-            if (val != valuePassed) {
-                val = valuePassed;
-            }
-
-            checkIfWon();
-            if (showMistakes) {
-                showMistakes();
-            }
+            setVal(valuePassed);
         }
 
-        public void showMistakes(){
-            unHighlightCorrectRowsAndCols();
-            unHighlightCorrectCages();
-            highlightMistakesCages();
-            highlightMistakesRowsAndCols();
+        public void setVal(int value){
+            setCellValue(row * size + col, value);
         }
 
         public void typeValue(String newValue, String oldValue){
-            System.out.println(newValue);
-
-            if (newValue.equals("")) {
-                typeBackspace();
-            }
-            else if (isNumeric(newValue)) {
-                int valuePassed = Integer.parseInt(newValue);
-                if (valuePassed > 9) {
-                    typeLargerValue(newValue, oldValue);
+            keystroke(row * size + col, newValue, () -> {
+                if (newValue.equals("")) {
+                    typeBackspace();
                 }
-                else {
-                    if (!checkTypeIsValid(valuePassed) && newValue != null) {
-                        this.setTextField("");
-                    } else {
+                else if (isNumeric(newValue)) {
+                    int valuePassed = Integer.parseInt(newValue);
+                    if (checkTypeIsValid(valuePassed)) {
                         typedCorrect(valuePassed);
                     }
+                    else if (newValue.length() > 1) {
+                        typeLargerValue(newValue, oldValue);
+                    }
+                    else {
+                        this.setTextField("");
+                    }
                 }
-            }
-            else {
-                this.setTextField("");
-            }
-
-            checkUndoAndRedo();
+                else {
+                    this.setTextField("");
+                }
+            });
         }
 
         public void setTextField(String number){
             if (number.equals("")){
                 textField.setText("");
-                if (val != 0) {
-                    undoValue = val;
-                }
-                val = 0;
+                setVal(0);
             }
             else {
                 textField.setText(number);
             }
         }
 
-        public int getUndoValue(){
-            return undoValue;
-        }
-
-        public int getRedoValue(){
-            return redoValue;
-        }
-
-        public void setUndoValue(int number){
-            undoValue = number;
-        }
-
-        public void setRedoValue(int number){
-            redoValue = number;
-        }
-
-        public int getVal(){
-            return val;
+        public void showValue(int value){
+            setTextField(value == 0 ? "" : Integer.toString(value));
         }
 
         public void handleClick(){
             currentCell = this;
             checkUndoAndRedo();
-            System.out.println("You clicked cell " + row + " " + col);
         }
 
-        public void setBorders(String style){
-            this.style = style;
-            this.setStyle(style);
+        public void setBorders(boolean top, boolean right, boolean bottom, boolean left){
+            pseudoClassStateChanged(JOINED_TOP, top);
+            pseudoClassStateChanged(JOINED_RIGHT, right);
+            pseudoClassStateChanged(JOINED_BOTTOM, bottom);
+            pseudoClassStateChanged(JOINED_LEFT, left);
         }
 
         public void setOperation(String operation1){
             operation = new Label(operation1);
-            operation.setStyle("-fx-font-size: 17");
+            operation.getStyleClass().add("cage-label");
             this.setLeft(operation);
         }
 
-        public void changeFontSize(String buttonType){
-            if (buttonType.equals("Small font"))
-            {
-                if (operation != null) {
-                    this.operation.setStyle("-fx-font-size: 10");
-                }
-                String[] textFieldStyles = textFieldStyle.split(";");
-                this.textField.setStyle(textFieldStyles[0] + "; -fx-font-size: 20; " + textFieldStyles[2]);
-            }
-            if (buttonType.equals("Medium font"))
-            {
-                if (operation != null) {
-                    this.operation.setStyle("-fx-font-size: 14");
-                }
-                String[] textFieldStyles = textFieldStyle.split(";");
-                this.textField.setStyle(textFieldStyles[0] + "; -fx-font-size: 25; " + textFieldStyles[2]);
-            }
-            if (buttonType.equals("Large font"))
-            {
-                if (operation != null) {
-                    this.operation.setStyle("-fx-font-size: 20");
-                }
-                String[] textFieldStyles = textFieldStyle.split(";");
-                this.textField.setStyle(textFieldStyles[0] + "; -fx-font-size: 30; " + textFieldStyles[2]);
-            }
-        }
-
         public int getRow(){
             return row;
         }
@@ -843,160 +726,29 @@ public class MathDoku extends Application {
             return col;
         }
 
-        public void highlightCell(String cagesOrRaC) {
-            if (cagesOrRaC.equals("RowsAndCols")){
-                isHighlightedRowsAndCols = true;
-                //System.out.println("isHighlightedRowsAndCols true");
-            }
-            else if (cagesOrRaC.equals("Cages")) {
-                isHighlightedCages = true;
-                //System.out.println("isHighlightedCages true");
-            }
-            if (isHighlightedCages || isHighlightedRowsAndCols) {
-                String[] styles = style.split(";");
-                style = styles[0] + ";" + styles[1] + "; -fx-background-color: red";
-                this.setStyle(style);
-                textFieldStyle = "-fx-border-color: red; -fx-font-size: 30; -fx-background-color: red";
-                textField.setStyle(textFieldStyle);
-            }
-        }
-
-        public void unHighlightCell(String cagesOrRaC){
-            if (cagesOrRaC.equals("RowsAndCols")) {
-                isHighlightedRowsAndCols = false;
-                //System.out.println("isHighlightedRowsAndCols false");
-            }
-            if (cagesOrRaC.equals("Cages")) {
-                isHighlightedCages = false;
-                //System.out.println("isHighlightedCages false");
-            }
-            if (!isHighlightedRowsAndCols && !isHighlightedCages) {
-                String[] styles = style.split(";");
-                style = styles[0] + ";" + styles[1] + "; -fx-background-color: white";
-                this.setStyle(style);
-                textFieldStyle = "-fx-border-color: white; -fx-font-size: 30; -fx-background-color: white";
-                textField.setStyle(textFieldStyle);
-            }
+        public void setError(boolean error){
+            pseudoClassStateChanged(ERROR, error);
+            styleChanged = true;
         }
     }
 
     public class Cage{
-        private Cell[] cells;
-        private String operation;
-
         public Cage(Cell[] cells, String operation){
-            this.cells = cells;
-            this.operation = operation;
             cells[0].setOperation(operation);
             for (Cell cell : cells)
                 setCage(cell);
         }
 
         public void setCage(Cell cell){
+            Puzzle puzzle = board.getPuzzle();
             int col = cell.getCol();
             int row = cell.getRow();
-            int top = 4;
-            int bottom = 4;
-            int left = 4;
-            int right = 4;
-            for (Cell neighbour : cells){
-                if (neighbour != cell) {
-                    if (neighbour.getRow() == row && neighbour.getCol() == (col + 1))
-                        right = 1;
-                    if (neighbour.getRow() == row && neighbour.getCol() == (col - 1))
-                        left = 1;
-                    if (neighbour.getCol() == col && neighbour.getRow() == (row + 1))
-                        bottom = 1;
-                    if (neighbour.getCol() == col && neighbour.getRow() == (row - 1))
-                        top = 1;
-                }
-            }
-            cell.setBorders("-fx-border-width: " + top + " " + right + " " + bottom + " " + left + " ; -fx-border-color: black ; -fx-background-color: white");
-        }
-
-        public String getOperation(String operation){
-            String finalString = "";
-            char[] chars = new char[operation.length()];
-            operation.getChars(0,operation.length(),chars,0);
-            for (char ch : chars){
-                if (isNumeric(Character.toString(ch)))
-                    finalString += ch;
-                else {
-                    finalString = finalString + " " + ch;
-                }
-            }
-            finalString += " c";
-            return finalString;
-        }
-
-        public boolean isCageCorrect(){
-            String[] whatToDo = getOperation(operation).split(" ");
-            int target = Integer.parseInt(whatToDo[0]);
-            String op;
-            if (whatToDo[1].equals("c")){
-                op =" ";
-            }
-            else {
-                op = whatToDo[1];
-            }
-            int result = 0;
-            if (op.equals(" ")){
-                result = cells[0].getVal();
-            }
-            if (op.equals("+")) {
-                result = 0;
-                for (Cell cell : cells)
-                    result += cell.getVal();
-            }
-            if (op.equals("-")) {
-                if (areCellsFilled()) {
-                    int[] orderedValues = this.orderValues();
-                    result = orderedValues[cells.length - 1];
-                    for (int i = (cells.length - 2); i >= 0; i--) {
-                        result -= orderedValues[i];
-                    }
-                }
-            }
-            if (op.equals("x")) {
-                result = 1;
-                for (Cell cell : cells)
-                    result *= cell.getVal();
-            }
-            if (op.equals("%") || op.equals("÷")) {
-                if (areCellsFilled()) {
-                    int[] orderedValues = this.orderValues();
-                    result = orderedValues[cells.length - 1];
-                    for (int i = (cells.length - 2); i >= 0; i--) {
-                        result /= orderedValues[i];
-                    }
-                }
-            }
-            if (result == target)
-                return true;
-            return false;
-        }
-
-        public Cell[] getCells(){
-            return cells;
-        }
-
-        public int[] orderValues(){
-            int[] values = new int[cells.length];
-            int i = 0;
-            for (Cell cell : cells) {
-                values[i] = cell.getVal();
-                i++;
-            }
-            Arrays.sort(values);
-            return values;
-        }
-
-        public boolean areCellsFilled(){
-            for (Cell cell : cells){
-                if (cell.getVal() == 0)
-                    return false;
-            }
-            return true;
+            int index = row * size + col;
+            boolean top = row > 0 && puzzle.inSameCage(index, index - size);
+            boolean bottom = row < size - 1 && puzzle.inSameCage(index, index + size);
+            boolean left = col > 0 && puzzle.inSameCage(index, index - 1);
+            boolean right = col < size - 1 && puzzle.inSameCage(index, index + 1);
+            cell.setBorders(top, right, bottom, left);
         }
     }
 }
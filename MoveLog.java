@@ -0,0 +1,141 @@
+import java.util.Arrays;
+
+// Undo/redo history for a whole board. Each move is packed into one int (cell, old value, new value and
+// a flag joining it to the move before), held in a ring buffer that grows up to a fixed number of moves;
+// past that the oldest moves are forgotten. A million moves take 4 MB.
+public class MoveLog {
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private static final int VALUE_BITS = 6;
+    private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+    private static final int CELL_SHIFT = 2 * VALUE_BITS;
+    private static final int CELL_MASK = (1 << 10) - 1;
+    private static final int CONTINUES_GROUP = 1 << 22;
+
+    public interface Target {
+        void apply(int cell, int value);
+    }
+
+    private final int capacity;
+    private int[] moves = new int[64];
+    private int start = 0;
+    private int count = 0;
+    private int position = 0;
+    private int groupDepth = 0;
+    private boolean groupStarted = false;
+
+    public MoveLog(int capacity){
+        if (capacity < 1)
+            throw new IllegalArgumentException("The history must hold at least one move");
+        this.capacity = capacity;
+        if (capacity < moves.length)
+            moves = new int[capacity];
+    }
+
+    // Moves recorded between beginGroup and endGroup are undone and redone together.
+    public void beginGroup(){
+        if (groupDepth++ == 0)
+            groupStarted = false;
+    }
+
+    public void endGroup(){
+        if (groupDepth > 0)
+            groupDepth--;
+    }
+
+    // Recording a move forgets everything that could have been redone.
+    public void record(int cell, int oldValue, int newValue){
+        if (cell < 0 || cell > CELL_MASK || oldValue < 0 || oldValue > VALUE_MASK || newValue < 0 || newValue > VALUE_MASK)
+            throw new IllegalArgumentException("Move does not fit a 32x32 grid");
+        int move = cell << CELL_SHIFT | oldValue << VALUE_BITS | newValue;
+        if (groupDepth > 0) {
+            if (groupStarted)
+                move |= CONTINUES_GROUP;
+            groupStarted = true;
+        }
+        count = position;
+        if (count == moves.length) {
+            if (moves.length < capacity)
+                grow();
+            else {
+                start = (start + 1) % moves.length;
+                count--;
+            }
+        }
+        moves[(start + count) % moves.length] = move;
+        position = ++count;
+    }
+
+    public boolean canUndo(){
+        return position > 0;
+    }
+
+    public boolean canRedo(){
+        return position < count;
+    }
+
+    public boolean undo(Target target){
+        if (position == 0)
+            return false;
+        int move;
+        do {
+            move = moves[(start + --position) % moves.length];
+            target.apply(move >>> CELL_SHIFT & CELL_MASK, move >>> VALUE_BITS & VALUE_MASK);
+        } while ((move & CONTINUES_GROUP) != 0 && position > 0);
+        return true;
+    }
+
+    public boolean redo(Target target){
+        if (position == count)
+            return false;
+        do {
+            int move = moves[(start + position++) % moves.length];
+            target.apply(move >>> CELL_SHIFT & CELL_MASK, move & VALUE_MASK);
+        } while (position < count && (moves[(start + position) % moves.length] & CONTINUES_GROUP) != 0);
+        return true;
+    }
+
+    public void clear(){
+        start = 0;
+        count = 0;
+        position = 0;
+    }
+
+    public int size(){
+        return count;
+    }
+
+    // The number of moves that can currently be undone; the rest of size() can be redone.
+    public int getPosition(){
+        return position;
+    }
+
+    // The packed moves, oldest first, for saving; restore(getMoves(), getPosition()) rebuilds the log.
+    public int[] getMoves(){
+        int[] copy = new int[count];
+        for (int i = 0; i < count; i++)
+            copy[i] = moves[(start + i) % moves.length];
+        return copy;
+    }
+
+    public void restore(int[] saved, int savedPosition){
+        if (savedPosition < 0 || savedPosition > saved.length)
+            throw new IllegalArgumentException("Position " + savedPosition + " is outside the saved history");
+        int skip = Math.max(0, saved.length - capacity);
+        moves = Arrays.copyOfRange(saved, skip, Math.max(skip + 64, saved.length));
+        if (moves.length > capacity)
+            moves = Arrays.copyOf(moves, capacity);
+        start = 0;
+        count = saved.length - skip;
+        position = Math.max(0, savedPosition - skip);
+        groupDepth = 0;
+    }
+
+    private void grow(){
+        int[] grown = new int[(int) Math.min(capacity, 2L * moves.length)];
+        for (int i = 0; i < count; i++)
+            grown[i] = moves[(start + i) % moves.length];
+        moves = grown;
+        start = 0;
+    }
+}
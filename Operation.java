@@ -0,0 +1,55 @@
+public enum Operation {
+    NONE(""), ADD("+"), SUBTRACT("-"), MULTIPLY("x"), DIVIDE("%");
+
+    private final String symbol;
+
+    Operation(String symbol){
+        this.symbol = symbol;
+    }
+
+    public String getSymbol(){
+        return symbol;
+    }
+
+    // Operations are written as the target followed by at most one operator, e.g. "11+", "2%" or "5".
+    public static Operation parse(String operation){
+        int digits = targetDigits(operation);
+        if (digits == operation.length())
+            return NONE;
+        switch (operation.charAt(digits)){
+            case '+': return ADD;
+            case '-': return SUBTRACT;
+            case 'x': return MULTIPLY;
+            case '%':
+            case '\u00f7': return DIVIDE;
+            default: throw new IllegalArgumentException("Unknown cage operator: " + operation.charAt(digits));
+        }
+    }
+
+    public static int parseTarget(String operation){
+        return Integer.parseInt(operation.substring(0, targetDigits(operation)));
+    }
+
+    private static int targetDigits(String operation){
+        int digits = 0;
+        while (digits < operation.length() && Character.isDigit(operation.charAt(digits)))
+            digits++;
+        if (digits == 0 || digits < operation.length() - 1)
+            throw new IllegalArgumentException("Invalid cage operation: " + operation);
+        return digits;
+    }
+
+    // Same result as MathDoku.Cage.isCageCorrect() on a filled cage: subtraction is the largest value
+    // minus the rest, division is the largest value divided in turn by the rest (integer division),
+    // which both reduce to closed forms over sum, product and max.
+    public boolean check(int target, long sum, long product, int max){
+        switch (this){
+            case NONE:
+            case ADD: return sum == target;
+            case SUBTRACT: return 2L * max - sum == target;
+            case MULTIPLY: return product == target;
+            case DIVIDE: return max / (product / max) == target;
+            default: return false;
+        }
+    }
+}
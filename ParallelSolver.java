@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ParallelSolver {
+    public static final int DEFAULT_SPLIT_DEPTH = 6;
+
+    private final Puzzle puzzle;
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final ThreadLocal<Solver> solvers;
+
+    public ParallelSolver(Puzzle puzzle, ForkJoinPool pool){
+        this(puzzle, pool, DEFAULT_SPLIT_DEPTH);
+    }
+
+    public ParallelSolver(Puzzle puzzle, ForkJoinPool pool, int splitDepth){
+        this.puzzle = puzzle;
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+        this.solvers = ThreadLocal.withInitial(() -> new Solver(puzzle));
+    }
+
+    public int[] solve(){
+        Search search = new Search(1);
+        run(search);
+        return search.solution.get();
+    }
+
+    public int countSolutions(int limit){
+        Search search = new Search(limit);
+        run(search);
+        return Math.min(search.found.get(), limit);
+    }
+
+    private void run(Search search){
+        int[] domains = new int[puzzle.getCellCount()];
+        if (solvers.get().initialize(domains))
+            pool.invoke(new Branch(search, domains, 0));
+    }
+
+    private static class Search {
+        private final int limit;
+        private final AtomicInteger found = new AtomicInteger();
+        private final AtomicReference<int[]> solution = new AtomicReference<>();
+        private final AtomicBoolean stop = new AtomicBoolean();
+
+        Search(int limit){
+            this.limit = limit;
+        }
+
+        void record(int count, int[] values){
+            if (count == 0)
+                return;
+            solution.compareAndSet(null, values);
+            if (found.addAndGet(count) >= limit)
+                stop.set(true);
+        }
+    }
+
+    // Each branch fixes the most constrained cell to one of its candidates; below splitDepth the
+    // subtree is searched sequentially by the worker's own Solver.
+    private class Branch extends RecursiveAction {
+        private final Search search;
+        private final int[] domains;
+        private final int depth;
+
+        Branch(Search search, int[] domains, int depth){
+            this.search = search;
+            this.domains = domains;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute(){
+            if (search.stop.get())
+                return;
+            Solver solver = solvers.get();
+            int cell = solver.chooseCell(domains);
+            if (cell == -1) {
+                search.record(1, Solver.toValues(domains));
+                return;
+            }
+            if (depth >= splitDepth) {
+                int remaining = search.limit - search.found.get();
+                if (remaining <= 0)
+                    return;
+                int count = solver.searchFrom(domains, remaining, search.stop);
+                search.record(count, solver.getSolution());
+                return;
+            }
+            List<Branch> branches = new ArrayList<>();
+            for (int candidates = domains[cell]; candidates != 0; candidates &= candidates - 1) {
+                int[] child = domains.clone();
+                if (solver.assign(child, cell, Integer.numberOfTrailingZeros(candidates) + 1))
+                    branches.add(new Branch(search, child, depth + 1));
+            }
+            invokeAll(branches);
+        }
+    }
+}
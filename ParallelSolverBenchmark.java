@@ -0,0 +1,71 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelSolverBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java ParallelSolverBenchmark <puzzle file or directory>... [-threads N] [-limit N]");
+            System.exit(1);
+        }
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int limit = 2;
+        List<Puzzle> puzzles = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads"))
+                maxThreads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-limit"))
+                limit = Integer.parseInt(args[++i]);
+            else
+                addPuzzles(new File(args[i]), puzzles);
+        }
+        System.out.println(puzzles.size() + " puzzles, counting up to " + limit + " solutions");
+
+        double sequential = measure(puzzles, null, limit);
+        System.out.printf("sequential  %10.2f ms%n", sequential);
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            double time = measure(puzzles, pool, limit);
+            pool.shutdown();
+            if (threads == 1)
+                single = time;
+            System.out.printf("%2d threads  %10.2f ms  speedup %5.2f%n", threads, time, single / time);
+        }
+    }
+
+    private static void addPuzzles(File file, List<Puzzle> puzzles) throws IOException {
+        File[] files = file.listFiles(File::isFile);
+        if (files == null) {
+            puzzles.add(Puzzle.fromFile(file));
+            return;
+        }
+        Arrays.sort(files);
+        for (File puzzleFile : files)
+            puzzles.add(Puzzle.fromFile(puzzleFile));
+    }
+
+    // Best of the measured rounds, in milliseconds for the whole set; a null pool runs the sequential Solver.
+    private static double measure(List<Puzzle> puzzles, ForkJoinPool pool, int limit){
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (Puzzle puzzle : puzzles) {
+                if (pool == null)
+                    new Solver(puzzle).countSolutions(limit);
+                else
+                    new ParallelSolver(puzzle, pool).countSolutions(limit);
+            }
+            double time = (System.nanoTime() - start) / 1e6;
+            if (round >= WARMUP_ROUNDS)
+                best = Math.min(best, time);
+        }
+        return best;
+    }
+}
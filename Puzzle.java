@@ -0,0 +1,90 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class Puzzle {
+    private final int size;
+    private final PuzzleCage[] cages;
+    private final int[] cageOf;
+
+    public Puzzle(int size, PuzzleCage[] cages){
+        this.size = size;
+        this.cages = cages.clone();
+        this.cageOf = new int[size * size];
+        Arrays.fill(cageOf, -1);
+        for (int c = 0; c < cages.length; c++)
+            for (int cell : cages[c].getCells()) {
+                if (cell < 0 || cell >= cageOf.length)
+                    throw new IllegalArgumentException("Cell " + (cell + 1) + " is outside a " + size + "x" + size + " grid");
+                if (cageOf[cell] != -1)
+                    throw new IllegalArgumentException("Cell " + (cell + 1) + " is part of more than one cage");
+                cageOf[cell] = c;
+            }
+    }
+
+    public static Puzzle fromFile(File file) throws IOException {
+        return PuzzleReader.readFile(file);
+    }
+
+    public int getSize(){
+        return size;
+    }
+
+    public int getCellCount(){
+        return size * size;
+    }
+
+    public int getCageCount(){
+        return cages.length;
+    }
+
+    public PuzzleCage getCage(int index){
+        return cages[index];
+    }
+
+    public int getCageOf(int cell){
+        return cageOf[cell];
+    }
+
+    // Whether two cells belong to the same cage; a cell outside every cage shares one with nothing.
+    public boolean inSameCage(int cell, int other){
+        return cageOf[cell] != -1 && cageOf[cell] == cageOf[other];
+    }
+
+    public boolean isSolvedBy(int[] values){
+        for (int i = 0; i < size; i++) {
+            int rowMask = 0;
+            int colMask = 0;
+            for (int j = 0; j < size; j++) {
+                int rowValue = values[i * size + j];
+                int colValue = values[j * size + i];
+                if (rowValue < 1 || rowValue > size || colValue < 1 || colValue > size)
+                    return false;
+                rowMask |= 1 << (rowValue - 1);
+                colMask |= 1 << (colValue - 1);
+            }
+            if (Integer.bitCount(rowMask) != size || Integer.bitCount(colMask) != size)
+                return false;
+        }
+        for (PuzzleCage cage : cages)
+            if (!cage.isSatisfiedBy(values))
+                return false;
+        return true;
+    }
+
+    public List<String> toLines(){
+        List<String> lines = new ArrayList<>();
+        for (PuzzleCage cage : cages) {
+            StringBuilder line = new StringBuilder(cage.getOperation()).append(' ');
+            for (int i = 0; i < cage.getCellCount(); i++) {
+                if (i > 0)
+                    line.append(',');
+                line.append(cage.getCell(i) + 1);
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+}
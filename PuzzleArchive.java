@@ -0,0 +1,168 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Random access to a binary puzzle archive through memory-mapped segments of the file. Nothing is read
+// up front: the offset index lives in the file too, so opening an archive of millions of puzzles costs
+// the same as opening one with a single puzzle, and fetching puzzle k touches only its index entry and
+// its record.
+//
+// Layout, big-endian: a 24-byte header (magic, version, puzzle count, unused int, offset of the index),
+// then one record per puzzle, then the index of record offsets as longs. A record is the grid size (u8)
+// and cage count (u16), then per cage its operation ordinal (u8), target (i32), cell count (u16) and the
+// 0-based cells (u16 each).
+public class PuzzleArchive implements Closeable {
+    public static final int MAGIC = 0x4d444b41;
+    public static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+    // Larger than any record (a 32x32 grid of single-cell cages takes 9219 bytes), so a record or index
+    // entry that starts in a segment always ends in it.
+    private static final long SEGMENT_OVERLAP = 1 << 16;
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final int count;
+    private final long indexOffset;
+
+    private PuzzleArchive(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long length = channel.size();
+        if (length < HEADER_SIZE)
+            throw new IOException("Not a puzzle archive: file is too short");
+        int segmentCount = (int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        segments = new MappedByteBuffer[segmentCount];
+        for (int s = 0; s < segmentCount; s++) {
+            long start = s * SEGMENT_SIZE;
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length - start, SEGMENT_SIZE + SEGMENT_OVERLAP));
+        }
+        ByteBuffer header = segments[0];
+        if (header.getInt(0) != MAGIC)
+            throw new IOException("Not a puzzle archive: wrong magic number");
+        if (header.getInt(4) != VERSION)
+            throw new IOException("Unsupported puzzle archive version " + header.getInt(4));
+        count = header.getInt(8);
+        indexOffset = header.getLong(16);
+        if (count < 0 || indexOffset < HEADER_SIZE || indexOffset + 8L * count != length)
+            throw new IOException("Puzzle archive is truncated or corrupt");
+    }
+
+    public static PuzzleArchive open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            return new PuzzleArchive(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size(){
+        return count;
+    }
+
+    // A read-only view of record k inside the mapping; no bytes are copied.
+    public ByteBuffer record(int k){
+        if (k < 0 || k >= count)
+            throw new IndexOutOfBoundsException("Puzzle " + k + " of " + count);
+        long start = offset(k);
+        long end = k + 1 < count ? offset(k + 1) : indexOffset;
+        ByteBuffer segment = segments[(int) (start / SEGMENT_SIZE)].duplicate();
+        int position = (int) (start % SEGMENT_SIZE);
+        segment.limit(position + (int) (end - start)).position(position);
+        return segment.slice().asReadOnlyBuffer();
+    }
+
+    public Puzzle get(int k) throws IOException {
+        try {
+            return readRecord(record(k));
+        } catch (IOException | RuntimeException e) {
+            throw new IOException("Puzzle " + k + " is corrupt: " + e.getMessage(), e);
+        }
+    }
+
+    // Decodes one record starting at the buffer's position and leaves the position just after it.
+    static Puzzle readRecord(ByteBuffer record) throws IOException {
+        int size = record.get() & 0xff;
+        PuzzleCage[] cages = new PuzzleCage[record.getShort() & 0xffff];
+        for (int c = 0; c < cages.length; c++) {
+            int op = record.get() & 0xff;
+            if (op >= OPERATIONS.length)
+                throw new IOException("Unknown cage operation " + op);
+            int target = record.getInt();
+            int[] cells = new int[record.getShort() & 0xffff];
+            for (int i = 0; i < cells.length; i++)
+                cells[i] = record.getShort() & 0xffff;
+            cages[c] = new PuzzleCage(cells, target + OPERATIONS[op].getSymbol());
+        }
+        return new Puzzle(size, cages);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long offset(int k){
+        long position = indexOffset + 8L * k;
+        return segments[(int) (position / SEGMENT_SIZE)].getLong((int) (position % SEGMENT_SIZE));
+    }
+
+    // pack <archive> <text files, directories or text archives...>  writes a binary archive;
+    // unpack <archive> <text file>  writes every puzzle back out in the text format, separated by blank lines.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !(args[0].equals("pack") || args[0].equals("unpack"))) {
+            System.err.println("Usage: java PuzzleArchive pack <archive> <puzzle files or directories...>");
+            System.err.println("       java PuzzleArchive unpack <archive> <text file>");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        int written = 0;
+        if (args[0].equals("pack")) {
+            List<File> files = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) {
+                File file = new File(args[i]);
+                File[] listed = file.listFiles(File::isFile);
+                if (listed != null) {
+                    Arrays.sort(listed);
+                    files.addAll(Arrays.asList(listed));
+                }
+                else
+                    files.add(file);
+            }
+            try (PuzzleArchiveWriter writer = new PuzzleArchiveWriter(new File(args[1]))) {
+                for (File file : files)
+                    try (PuzzleReader reader = PuzzleReader.open(file)) {
+                        Puzzle puzzle;
+                        while ((puzzle = reader.read()) != null)
+                            writer.add(puzzle);
+                    }
+                written = writer.getCount();
+            }
+        }
+        else {
+            try (PuzzleArchive archive = open(new File(args[1]));
+                 PrintWriter out = new PrintWriter(new File(args[2]), StandardCharsets.UTF_8.name())) {
+                for (int k = 0; k < archive.size(); k++) {
+                    if (k > 0)
+                        out.println();
+                    for (String line : archive.get(k).toLines())
+                        out.println(line);
+                }
+                written = archive.size();
+            }
+        }
+        System.out.printf("%d puzzles in %.1f ms%n", written, (System.nanoTime() - start) / 1e6);
+    }
+}
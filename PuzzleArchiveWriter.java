@@ -0,0 +1,72 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+// Writes the binary archive read by PuzzleArchive in one streaming pass: records go out as they are
+// added, the offset index is appended on close and the header is patched to point at it.
+public class PuzzleArchiveWriter implements Closeable {
+    private final File file;
+    private final DataOutputStream out;
+    private long position;
+    private long[] offsets = new long[1024];
+    private int count = 0;
+
+    public PuzzleArchiveWriter(File file) throws IOException {
+        this.file = file;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out.writeInt(PuzzleArchive.MAGIC);
+        out.writeInt(PuzzleArchive.VERSION);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeLong(0);
+        position = PuzzleArchive.HEADER_SIZE;
+    }
+
+    public void add(Puzzle puzzle) throws IOException {
+        if (count == offsets.length)
+            offsets = Arrays.copyOf(offsets, count * 2);
+        offsets[count++] = position;
+        position += writeRecord(out, puzzle);
+    }
+
+    // Writes one puzzle in the record layout described in PuzzleArchive and returns its length in bytes.
+    static int writeRecord(DataOutput out, Puzzle puzzle) throws IOException {
+        out.writeByte(puzzle.getSize());
+        out.writeShort(puzzle.getCageCount());
+        int length = 3;
+        for (int c = 0; c < puzzle.getCageCount(); c++) {
+            PuzzleCage cage = puzzle.getCage(c);
+            out.writeByte(cage.getOp().ordinal());
+            out.writeInt(cage.getTarget());
+            out.writeShort(cage.getCellCount());
+            for (int i = 0; i < cage.getCellCount(); i++)
+                out.writeShort(cage.getCell(i));
+            length += 7 + 2 * cage.getCellCount();
+        }
+        return length;
+    }
+
+    public int getCount(){
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        long indexOffset = position;
+        for (int i = 0; i < count; i++)
+            out.writeLong(offsets[i]);
+        out.close();
+        try (RandomAccessFile header = new RandomAccessFile(file, "rw")) {
+            header.seek(8);
+            header.writeInt(count);
+            header.writeInt(0);
+            header.writeLong(indexOffset);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+public final class PuzzleCage {
+    private final int[] cells;
+    private final Operation op;
+    private final int target;
+    private final String operation;
+
+    public PuzzleCage(int[] cells, String operation){
+        if (cells.length == 0)
+            throw new IllegalArgumentException("Cage has no cells");
+        this.cells = cells.clone();
+        this.operation = operation;
+        this.target = Operation.parseTarget(operation);
+        this.op = Operation.parse(operation);
+    }
+
+    public static PuzzleCage parse(String operation, String commaSeparatedCells){
+        String[] splitCell = commaSeparatedCells.split(",");
+        int[] cells = new int[splitCell.length];
+        for (int i = 0; i < splitCell.length; i++)
+            cells[i] = Integer.parseInt(splitCell[i].trim()) - 1;
+        return new PuzzleCage(cells, operation);
+    }
+
+    public boolean isSatisfiedBy(int[] values){
+        long sum = 0;
+        long product = 1;
+        int max = 0;
+        for (int cell : cells){
+            int value = values[cell];
+            if (value == 0)
+                return false;
+            sum += value;
+            product *= value;
+            if (value > max)
+                max = value;
+        }
+        return op.check(target, sum, product, max);
+    }
+
+    public int[] getCells(){
+        return cells.clone();
+    }
+
+    public int getCell(int index){
+        return cells[index];
+    }
+
+    public int getCellCount(){
+        return cells.length;
+    }
+
+    public Operation getOp(){
+        return op;
+    }
+
+    public int getTarget(){
+        return target;
+    }
+
+    public String getOperation(){
+        return operation;
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PuzzleChecker {
+    public static final String UNIQUE = "unique";
+    public static final String MULTIPLE = "multiple";
+    public static final String UNSOLVABLE = "unsolvable";
+    public static final String INVALID = "invalid";
+
+    public static String check(Puzzle puzzle){
+        return check(puzzle, false);
+    }
+
+    // With exactCover the puzzle is solved by DancingLinksSolver instead of Solver.
+    public static String check(Puzzle puzzle, boolean exactCover){
+        int solutions = exactCover ? new DancingLinksSolver(puzzle).countSolutions(2) : new Solver(puzzle).countSolutions(2);
+        if (solutions == 0)
+            return UNSOLVABLE;
+        return solutions == 1 ? UNIQUE : MULTIPLE;
+    }
+
+    public static String check(File file){
+        return check(file, false);
+    }
+
+    public static String check(File file, boolean exactCover){
+        try {
+            return check(Puzzle.fromFile(file), exactCover);
+        } catch (IOException | IllegalArgumentException e) {
+            return INVALID + " (" + e.getMessage() + ")";
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        if (args.length < 1) {
+            System.err.println("Usage: java PuzzleChecker <puzzle directory> [threads] [-dlx]");
+            System.exit(1);
+        }
+        File[] files = new File(args[0]).listFiles(File::isFile);
+        if (files == null) {
+            System.err.println(args[0] + " is not a directory");
+            System.exit(1);
+        }
+        Arrays.sort(files);
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean exactCover = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("-dlx"))
+                exactCover = true;
+            else
+                threads = Integer.parseInt(args[i]);
+        }
+        boolean dlx = exactCover;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<String>> results = new ArrayList<>();
+        for (File file : files)
+            results.add(executor.submit(() -> check(file, dlx)));
+
+        int unique = 0;
+        int multiple = 0;
+        int unsolvable = 0;
+        int invalid = 0;
+        for (int i = 0; i < files.length; i++) {
+            String result = results.get(i).get();
+            System.out.println(files[i].getName() + ": " + result);
+            if (result.equals(UNIQUE))
+                unique++;
+            else if (result.equals(MULTIPLE))
+                multiple++;
+            else if (result.equals(UNSOLVABLE))
+                unsolvable++;
+            else
+                invalid++;
+        }
+        executor.shutdown();
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(files.length + " puzzles: " + unique + " unique, " + multiple + " multiple, "
+                + unsolvable + " unsolvable, " + invalid + " invalid");
+        System.out.printf("%.1f ms, %.0f puzzles/s on %d threads%n", elapsed / 1e6,
+                files.length / (elapsed / 1e9), threads);
+    }
+}
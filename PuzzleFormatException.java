@@ -0,0 +1,20 @@
+import java.io.IOException;
+
+public class PuzzleFormatException extends IOException {
+    private final int line;
+    private final int column;
+
+    public PuzzleFormatException(String message, int line, int column){
+        super("Line " + line + ", column " + column + ": " + message);
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getLine(){
+        return line;
+    }
+
+    public int getColumn(){
+        return column;
+    }
+}
@@ -0,0 +1,326 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PuzzleGenerator {
+    private static final int[] CAGE_SIZES = {1, 2, 2, 2, 3, 3, 3, 4, 4};
+    private static final long NODE_LIMIT = 20000;
+
+    private final int size;
+    private final SplittableRandom random;
+    private int[] solution;
+    private Puzzle puzzle;
+
+    public PuzzleGenerator(int size, long seed){
+        if (size < 2 || size > 32)
+            throw new IllegalArgumentException("Grid size must be between 2 and 32");
+        this.size = size;
+        this.random = new SplittableRandom(seed);
+    }
+
+    // Keeps refining the cages of one random grid until the solver finds exactly one solution: the cage
+    // holding a cell where another solution differs first gets a stricter operation, then is split.
+    // When the uniqueness search is too expensive the largest cage is split instead.
+    public Puzzle generate(){
+        solution = latinSquare();
+        List<int[]> cages = partition(CAGE_SIZES);
+        List<String> operations = new ArrayList<>();
+        for (int[] cage : cages)
+            operations.add(chooseOperation(cage));
+        while (true) {
+            Puzzle puzzle = build(cages, operations);
+            Solver solver = new Solver(puzzle);
+            solver.setNodeLimit(NODE_LIMIT);
+            int count = solver.countSolutions(2);
+            if (count == 1 && !solver.isAbandoned()) {
+                this.puzzle = puzzle;
+                return puzzle;
+            }
+            if (count < 2) {
+                int cage = largestCage(cages);
+                int[] cells = cages.get(cage);
+                split(cages, operations, cage, cells[random.nextInt(cells.length)]);
+                continue;
+            }
+            int[] other = solver.getSolutions().get(0);
+            if (Arrays.equals(other, solution))
+                other = solver.getSolutions().get(1);
+            int cell = differingCell(other);
+            int cage = puzzle.getCageOf(cell);
+            String stricter = stricterOperation(cages.get(cage), operations.get(cage));
+            if (stricter != null)
+                operations.set(cage, stricter);
+            else
+                split(cages, operations, cage, cell);
+        }
+    }
+
+    // A random grid cut into cages drawn from the given sizes, without checking that the solution is
+    // unique. Benchmarks use it to get boards of any size and cage mix quickly.
+    public Puzzle generateLayout(int[] cageSizes){
+        solution = latinSquare();
+        List<int[]> cages = partition(cageSizes);
+        List<String> operations = new ArrayList<>();
+        for (int[] cage : cages)
+            operations.add(chooseOperation(cage));
+        puzzle = build(cages, operations);
+        return puzzle;
+    }
+
+    public int[] getSolution(){
+        return solution.clone();
+    }
+
+    // The DifficultyRater label of the last generated puzzle, so file names agree with the rater.
+    public String getDifficulty(){
+        DifficultyRater rater = new DifficultyRater(puzzle);
+        rater.rate();
+        return rater.getLabel();
+    }
+
+    // Fills the square row by row; each row is a random perfect matching between columns and the
+    // symbols still missing from them, which always exists for a Latin rectangle.
+    private int[] latinSquare(){
+        int[] values = new int[size * size];
+        int[] used = new int[size];
+        int[] symbolOwner = new int[size];
+        int[] order = new int[size];
+        for (int row = 0; row < size; row++) {
+            Arrays.fill(symbolOwner, -1);
+            for (int col = 0; col < size; col++)
+                order[col] = col;
+            shuffle(order);
+            for (int col : order)
+                match(col, used, symbolOwner, new boolean[size]);
+            for (int symbol = 0; symbol < size; symbol++) {
+                int col = symbolOwner[symbol];
+                values[row * size + col] = symbol + 1;
+                used[col] |= 1 << symbol;
+            }
+        }
+        return values;
+    }
+
+    private boolean match(int col, int[] used, int[] symbolOwner, boolean[] visited){
+        int offset = random.nextInt(size);
+        for (int k = 0; k < size; k++) {
+            int symbol = (k + offset) % size;
+            if ((used[col] & (1 << symbol)) != 0 || visited[symbol])
+                continue;
+            visited[symbol] = true;
+            if (symbolOwner[symbol] == -1 || match(symbolOwner[symbol], used, symbolOwner, visited)) {
+                symbolOwner[symbol] = col;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Grows each cage from a random free cell through free neighbours in the same row or column.
+    private List<int[]> partition(int[] cageSizes){
+        int cellCount = size * size;
+        boolean[] taken = new boolean[cellCount];
+        int[] order = new int[cellCount];
+        for (int i = 0; i < cellCount; i++)
+            order[i] = i;
+        shuffle(order);
+        List<int[]> cages = new ArrayList<>();
+        int[] cells = new int[Arrays.stream(cageSizes).max().getAsInt()];
+        int[] frontier = new int[4 * cells.length];
+        for (int start : order) {
+            if (taken[start])
+                continue;
+            int target = cageSizes[random.nextInt(cageSizes.length)];
+            int count = 0;
+            cells[count++] = start;
+            taken[start] = true;
+            while (count < target) {
+                int options = 0;
+                for (int i = 0; i < count; i++)
+                    options = addNeighbours(cells[i], taken, frontier, options);
+                if (options == 0)
+                    break;
+                int next = frontier[random.nextInt(options)];
+                cells[count++] = next;
+                taken[next] = true;
+            }
+            cages.add(Arrays.copyOf(cells, count));
+        }
+        return cages;
+    }
+
+    private int addNeighbours(int cell, boolean[] taken, int[] frontier, int options){
+        int row = cell / size;
+        int col = cell % size;
+        if (col > 0 && !taken[cell - 1])
+            frontier[options++] = cell - 1;
+        if (col < size - 1 && !taken[cell + 1])
+            frontier[options++] = cell + 1;
+        if (row > 0 && !taken[cell - size])
+            frontier[options++] = cell - size;
+        if (row < size - 1 && !taken[cell + size])
+            frontier[options++] = cell + size;
+        return options;
+    }
+
+    private String chooseOperation(int[] cage){
+        if (cage.length == 1)
+            return Integer.toString(solution[cage[0]]);
+        int a = solution[cage[0]];
+        int b = solution[cage[1]];
+        int pick = random.nextInt(4);
+        if (cage.length == 2 && pick == 0 && Math.max(a, b) % Math.min(a, b) == 0)
+            return Math.max(a, b) / Math.min(a, b) + Operation.DIVIDE.getSymbol();
+        if (cage.length == 2 && pick <= 1)
+            return Math.abs(a - b) + Operation.SUBTRACT.getSymbol();
+        if (pick == 2 && product(cage) <= Integer.MAX_VALUE)
+            return product(cage) + Operation.MULTIPLY.getSymbol();
+        return sum(cage) + Operation.ADD.getSymbol();
+    }
+
+    private String stricterOperation(int[] cage, String operation){
+        if (cage.length == 1)
+            return null;
+        Operation op = Operation.parse(operation);
+        if (op == Operation.ADD || op == Operation.SUBTRACT) {
+            if (product(cage) <= Integer.MAX_VALUE)
+                return product(cage) + Operation.MULTIPLY.getSymbol();
+        }
+        return null;
+    }
+
+    // Splits the cell off its cage; whatever is left is re-cut into connected pieces.
+    private void split(List<int[]> cages, List<String> operations, int cage, int cell){
+        int[] cells = cages.get(cage);
+        cages.set(cage, new int[]{cell});
+        operations.set(cage, chooseOperation(cages.get(cage)));
+        boolean[] remaining = new boolean[size * size];
+        for (int other : cells)
+            if (other != cell)
+                remaining[other] = true;
+        for (int other : cells) {
+            if (!remaining[other])
+                continue;
+            int[] piece = new int[cells.length];
+            int count = 0;
+            piece[count++] = other;
+            remaining[other] = false;
+            for (int i = 0; i < count; i++) {
+                int current = piece[i];
+                int row = current / size;
+                int col = current % size;
+                int[] neighbours = {col > 0 ? current - 1 : -1, col < size - 1 ? current + 1 : -1,
+                        row > 0 ? current - size : -1, row < size - 1 ? current + size : -1};
+                for (int neighbour : neighbours)
+                    if (neighbour != -1 && remaining[neighbour]) {
+                        remaining[neighbour] = false;
+                        piece[count++] = neighbour;
+                    }
+            }
+            int[] newCage = Arrays.copyOf(piece, count);
+            cages.add(newCage);
+            operations.add(chooseOperation(newCage));
+        }
+    }
+
+    private int largestCage(List<int[]> cages){
+        int largest = 0;
+        for (int i = 1; i < cages.size(); i++)
+            if (cages.get(i).length > cages.get(largest).length)
+                largest = i;
+        return largest;
+    }
+
+    private int differingCell(int[] other){
+        int[] cells = new int[solution.length];
+        int count = 0;
+        for (int i = 0; i < solution.length; i++)
+            if (other[i] != solution[i])
+                cells[count++] = i;
+        return cells[random.nextInt(count)];
+    }
+
+    private Puzzle build(List<int[]> cages, List<String> operations){
+        PuzzleCage[] puzzleCages = new PuzzleCage[cages.size()];
+        for (int i = 0; i < puzzleCages.length; i++)
+            puzzleCages[i] = new PuzzleCage(cages.get(i), operations.get(i));
+        return new Puzzle(size, puzzleCages);
+    }
+
+    private long product(int[] cage){
+        long product = 1;
+        for (int cell : cage)
+            product *= solution[cell];
+        return product;
+    }
+
+    private int sum(int[] cage){
+        int sum = 0;
+        for (int cell : cage)
+            sum += solution[cell];
+        return sum;
+    }
+
+    private void shuffle(int[] values){
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 3) {
+            System.err.println("Usage: java PuzzleGenerator <size> <count> <output directory> [seed] [threads]");
+            System.exit(1);
+        }
+        int size = Integer.parseInt(args[0]);
+        int count = Integer.parseInt(args[1]);
+        File directory = new File(args[2]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        directory.mkdirs();
+
+        // Puzzle i always comes from seed + i, so a run can be reproduced whatever the thread count.
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long puzzleSeed = seed + i;
+            int index = i;
+            results.add(executor.submit(() -> {
+                PuzzleGenerator generator = new PuzzleGenerator(size, puzzleSeed);
+                Puzzle puzzle = generator.generate();
+                String difficulty = generator.getDifficulty();
+                String name = String.format("%dx%d-%s-%06d.txt", size, size, difficulty, index);
+                Files.write(new File(directory, name).toPath(), puzzle.toLines());
+                return difficulty;
+            }));
+        }
+        int easy = 0;
+        int medium = 0;
+        int hard = 0;
+        for (Future<String> result : results) {
+            String difficulty = result.get();
+            if (difficulty.equals("easy"))
+                easy++;
+            else if (difficulty.equals("medium"))
+                medium++;
+            else
+                hard++;
+        }
+        executor.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(count + " puzzles from seed " + seed + ": " + easy + " easy, " + medium + " medium, " + hard + " hard");
+        System.out.printf("%.1f s, %.0f puzzles/hour on %d threads%n", seconds, count / seconds * 3600, threads);
+    }
+}
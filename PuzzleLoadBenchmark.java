@@ -0,0 +1,116 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+public class PuzzleLoadBenchmark {
+    private static final int PUZZLES = 10000;
+
+    public static void main(String[] args) throws IOException {
+        File source = new File(args.length > 0 ? args[0] : "puzzles/hard");
+        File[] sources = source.listFiles(File::isFile);
+        if (sources == null || sources.length == 0) {
+            System.err.println(source + " contains no puzzle files");
+            System.exit(1);
+        }
+        Arrays.sort(sources);
+
+        File directory = Files.createTempDirectory("mathdoku-load").toFile();
+        File archive = new File(directory, "archive.txt");
+        List<File> files = new ArrayList<>();
+        StringBuilder archiveText = new StringBuilder();
+        for (int i = 0; i < PUZZLES; i++) {
+            byte[] puzzle = Files.readAllBytes(sources[i % sources.length].toPath());
+            File file = new File(directory, "puzzle" + i + ".txt");
+            Files.write(file.toPath(), puzzle);
+            files.add(file);
+            archiveText.append(new String(puzzle, "UTF-8").trim()).append("\n\n");
+        }
+        Files.write(archive.toPath(), archiveText.toString().getBytes("UTF-8"));
+        File binary = new File(directory, "archive.mdka");
+        try (PuzzleArchiveWriter writer = new PuzzleArchiveWriter(binary)) {
+            for (Puzzle puzzle : PuzzleReader.readArchive(archive))
+                writer.add(puzzle);
+        }
+        int[] order = new int[PUZZLES];
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < PUZZLES; i++)
+            order[i] = random.nextInt(PUZZLES);
+        System.out.println(PUZZLES + " puzzles copied from " + source + " into " + directory);
+
+        for (int round = 0; round < 5; round++) {
+            measure("archive, one pass", () -> PuzzleReader.readArchive(archive).size());
+            measure("binary, random order", () -> {
+                int count = 0;
+                try (PuzzleArchive mapped = PuzzleArchive.open(binary)) {
+                    for (int k : order)
+                        count += mapped.get(k).getCageCount() > 0 ? 1 : 0;
+                }
+                return count;
+            });
+            measure("files, one pass", () -> {
+                int count = 0;
+                for (File file : files)
+                    count += Puzzle.fromFile(file).getCageCount() > 0 ? 1 : 0;
+                return count;
+            });
+            measure("files, three passes", () -> {
+                int count = 0;
+                for (File file : files)
+                    count += legacyLoad(file);
+                return count;
+            });
+        }
+
+        for (File file : files)
+            file.delete();
+        archive.delete();
+        binary.delete();
+        directory.delete();
+    }
+
+    private interface Load {
+        int run() throws IOException;
+    }
+
+    private static void measure(String name, Load load) throws IOException {
+        long handlesBefore = openFileHandles();
+        long start = System.nanoTime();
+        int count = load.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long handlesAfter = openFileHandles();
+        System.out.printf("%-22s %6d puzzles %10.0f puzzles/s  open file handles %d -> %d%n", name, count,
+                count / seconds, handlesBefore, handlesAfter);
+    }
+
+    private static long openFileHandles(){
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean)
+            return ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        return -1;
+    }
+
+    // The old displayGridFromFile path: beforeGridCreation, cellsAreValid and createCagesFromFile each
+    // opened the file again and none of the readers were closed.
+    private static int legacyLoad(File file) throws IOException {
+        int cages = 0;
+        for (int pass = 0; pass < 3; pass++) {
+            BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
+            while (bufferedReader.ready()) {
+                String[] splitStrings = bufferedReader.readLine().split(" ");
+                for (String cell : splitStrings[1].split(","))
+                    Integer.parseInt(cell);
+                if (pass == 2)
+                    cages++;
+            }
+        }
+        return cages > 0 ? 1 : 0;
+    }
+}
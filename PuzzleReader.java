@@ -0,0 +1,230 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.Math.*;
+
+// Reads puzzles in the "11+ 1,7" cage-per-line format in a single pass over the input. An archive is
+// several puzzles separated by blank lines; read() returns them one at a time and null at the end.
+public class PuzzleReader implements Closeable {
+    public static final int MAX_CELLS = 32 * 32;
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+    private int line = 1;
+    private int column = 1;
+
+    private final int[] owner = new int[MAX_CELLS + 1];
+    private final StringBuilder operation = new StringBuilder();
+    private final CageConnectivity connectivity = new CageConnectivity();
+    private int[] cells = new int[16];
+    private int[] touched = new int[64];
+    private int touchedCount = 0;
+
+    public PuzzleReader(Reader reader){
+        this.reader = reader;
+    }
+
+    public static Puzzle readFile(File file) throws IOException {
+        try (PuzzleReader reader = open(file)) {
+            Puzzle puzzle = reader.read();
+            if (puzzle == null)
+                throw new PuzzleFormatException("File contains no cages", reader.line, reader.column);
+            if (reader.skipBlankLines())
+                throw new PuzzleFormatException("Expected the end of the file after the puzzle", reader.line, reader.column);
+            return puzzle;
+        }
+    }
+
+    public static List<Puzzle> readArchive(File file) throws IOException {
+        List<Puzzle> puzzles = new ArrayList<>();
+        try (PuzzleReader reader = open(file)) {
+            Puzzle puzzle;
+            while ((puzzle = reader.read()) != null)
+                puzzles.add(puzzle);
+        }
+        return puzzles;
+    }
+
+    public static PuzzleReader open(File file) throws IOException {
+        return new PuzzleReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+
+    // After a format error the rest of that puzzle is skipped, so reading an archive can carry on
+    // with the next one.
+    public Puzzle read() throws IOException {
+        if (!skipBlankLines())
+            return null;
+        List<PuzzleCage> cages = new ArrayList<>();
+        List<int[]> positions = new ArrayList<>();
+        int maximum = 0;
+        try {
+            do {
+                int cageLine = line;
+                skipSpaces();
+                int cageColumn = column;
+                readOperation();
+                if (!isSpace(peek()))
+                    throw error("Expected a space between the cage operation and its cells");
+                skipSpaces();
+                int cellsColumn = column;
+                int count = 0;
+                while (true) {
+                    int cellColumn = column;
+                    int cell = readNumber("Expected a cell number");
+                    if (cell < 1 || cell > MAX_CELLS)
+                        throw new PuzzleFormatException("Cell " + cell + " is outside the largest supported grid", line, cellColumn);
+                    if (owner[cell] != 0)
+                        throw new PuzzleFormatException("Cell " + cell + " is already part of the cage on line "
+                                + positions.get(owner[cell] - 1)[0], line, cellColumn);
+                    owner[cell] = cages.size() + 1;
+                    if (touchedCount == touched.length)
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = cell;
+                    if (count == cells.length)
+                        cells = Arrays.copyOf(cells, count * 2);
+                    cells[count++] = cell - 1;
+                    maximum = max(maximum, cell);
+                    if (peek() != ',')
+                        break;
+                    next();
+                }
+                skipSpaces();
+                if (peek() != '\n' && peek() != -1)
+                    throw error("Unexpected character '" + (char) peek() + "'");
+                next();
+                cages.add(new PuzzleCage(Arrays.copyOf(cells, count), operation.toString()));
+                positions.add(new int[]{cageLine, cageColumn, cellsColumn});
+            } while (!atBlankLine());
+        } catch (PuzzleFormatException e) {
+            skipPuzzle();
+            throw e;
+        } finally {
+            for (int i = 0; i < touchedCount; i++)
+                owner[touched[i]] = 0;
+            touchedCount = 0;
+        }
+
+        int size = (int) ceil(sqrt(maximum));
+        for (int c = 0; c < cages.size(); c++) {
+            int[] disconnected = connectivity.findDisconnected(cages.get(c).getCells(), size);
+            if (disconnected.length > 0) {
+                StringBuilder cellList = new StringBuilder();
+                for (int cell : disconnected)
+                    cellList.append(cellList.length() == 0 ? "" : ", ").append(cell + 1);
+                throw new PuzzleFormatException("Cells given in one cage are not adjacent; not connected to the rest of the cage: "
+                        + cellList, positions.get(c)[0], positions.get(c)[2]);
+            }
+        }
+        return new Puzzle(size, cages.toArray(new PuzzleCage[0]));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readOperation() throws IOException {
+        operation.setLength(0);
+        operation.append(readNumber("Expected the cage target"));
+        int ch = peek();
+        if (ch != -1 && !isSpace(ch) && ch != '\n') {
+            if (ch != '+' && ch != '-' && ch != 'x' && ch != '%' && ch != '\u00f7')
+                throw error("Unknown cage operator '" + (char) ch + "'");
+            operation.append((char) next());
+        }
+    }
+
+    private int readNumber(String expected) throws IOException {
+        int startColumn = column;
+        if (!isDigit(peek()))
+            throw new PuzzleFormatException(expected, line, startColumn);
+        int value = 0;
+        while (isDigit(peek())) {
+            if (value > (Integer.MAX_VALUE - 9) / 10)
+                throw new PuzzleFormatException("Number is too large", line, startColumn);
+            value = value * 10 + (next() - '0');
+        }
+        return value;
+    }
+
+    private PuzzleFormatException error(String message){
+        return new PuzzleFormatException(message, line, column);
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private int next() throws IOException {
+        int ch = peek();
+        if (ch == -1)
+            return -1;
+        position++;
+        if (ch == '\n') {
+            line++;
+            column = 1;
+        }
+        else
+            column++;
+        return ch;
+    }
+
+    private static boolean isDigit(int ch){
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static boolean isSpace(int ch){
+        return ch == ' ' || ch == '\t' || ch == '\r';
+    }
+
+    private void skipSpaces() throws IOException {
+        while (isSpace(peek()))
+            next();
+    }
+
+    // True when the next line is blank or the input has ended, i.e. the current puzzle is complete.
+    private boolean atBlankLine() throws IOException {
+        skipSpaces();
+        return peek() == '\n' || peek() == -1;
+    }
+
+    // Skips blank lines and returns whether there is anything left to read.
+    private boolean skipBlankLines() throws IOException {
+        while (true) {
+            skipSpaces();
+            if (peek() == -1)
+                return false;
+            if (peek() != '\n')
+                return true;
+            next();
+        }
+    }
+
+    private void skipPuzzle() throws IOException {
+        while (true) {
+            int ch = next();
+            if (ch == -1)
+                return;
+            if (ch == '\n' && atBlankLine())
+                return;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+// A game in progress as a compact binary blob: the puzzle itself (in the PuzzleArchive record layout,
+// so puzzles typed into the window come back too), one byte per cell value, the undo history and the
+// mistake toggle.
+public final class SavedGame {
+    private static final int MAGIC = 0x4d444b53;
+    private static final int VERSION = 1;
+
+    private final Puzzle puzzle;
+    private final int[] values;
+    private final int[] moves;
+    private final int position;
+    private final boolean showMistakes;
+
+    public SavedGame(Puzzle puzzle, int[] values, int[] moves, int position, boolean showMistakes){
+        this.puzzle = puzzle;
+        this.values = values;
+        this.moves = moves;
+        this.position = position;
+        this.showMistakes = showMistakes;
+    }
+
+    public Puzzle getPuzzle(){
+        return puzzle;
+    }
+
+    public int[] getValues(){
+        return values.clone();
+    }
+
+    public int[] getMoves(){
+        return moves.clone();
+    }
+
+    public int getPosition(){
+        return position;
+    }
+
+    public boolean isShowMistakes(){
+        return showMistakes;
+    }
+
+    public byte[] encode(){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + values.length + 4 * moves.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(showMistakes);
+            PuzzleArchiveWriter.writeRecord(out, puzzle);
+            for (int value : values)
+                out.writeByte(value);
+            out.writeInt(moves.length);
+            out.writeInt(position);
+            for (int move : moves)
+                out.writeInt(move);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SavedGame decode(byte[] data) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            if (in.getInt() != MAGIC)
+                throw new IOException("Not a saved game");
+            if (in.getInt() != VERSION)
+                throw new IOException("Unsupported saved game version");
+            boolean showMistakes = in.get() != 0;
+            Puzzle puzzle = PuzzleArchive.readRecord(in);
+            int[] values = new int[puzzle.getCellCount()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.get() & 0xff;
+                if (values[i] > puzzle.getSize())
+                    throw new IOException("Saved value " + values[i] + " does not fit the puzzle");
+            }
+            int moveCount = in.getInt();
+            int position = in.getInt();
+            if (moveCount < 0 || moveCount > in.remaining() / 4)
+                throw new IOException("Saved history is truncated");
+            int[] moves = new int[moveCount];
+            for (int i = 0; i < moves.length; i++)
+                moves[i] = in.getInt();
+            if (position < 0 || position > moves.length)
+                throw new IOException("Saved history position is out of range");
+            return new SavedGame(puzzle, values, moves, position, showMistakes);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Saved game is truncated or corrupt", e);
+        }
+    }
+}
@@ -0,0 +1,749 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class Solver {
+    private final Puzzle puzzle;
+    private final int size;
+    private final int cellCount;
+    private final int fullMask;
+    private final int[][] cageCells;
+    private final Operation[] cageOps;
+    private final int[] cageTargets;
+    private final int[] cageDigits;
+    private final int[][][] cagePeers;
+    // The rows (0 to size - 1) and columns (size up) each cage touches, and per cage cell the slots of
+    // its row and column in that list.
+    private final int[][] cageLines;
+    private final int[][] rowSlots;
+    private final int[][] colSlots;
+    // Per cage and line slot, the cells of that line outside the cage.
+    private final int[][][] lineOthers;
+    // Per cage, every filling its operation and its rows and columns allow, as bitsets over the fillings:
+    // fillingsWith[c][i * size + v - 1] holds the fillings that put v in cell i and lineWith[c][l * size
+    // + v - 1] the ones that put v in line slot l. Null for a cage with more than MAX_FILLINGS, which is
+    // enumerated against the domains instead.
+    static final int MAX_FILLINGS = 1 << 12;
+    private final long[][][] fillingsWith;
+    private final long[][][] lineWith;
+    private final int[] fillingCount;
+    // Pruning a cage builds its table on the TABLE_AFTER-th time, so quick solves never pay for one.
+    private static final int TABLE_AFTER = 8;
+    private final int[] prunes;
+    private long[] valid = new long[0];
+    private long[] union = new long[0];
+
+    private final int[] pending;
+    private int pendingTop;
+    private final boolean[] dirty;
+    private final int[] cageQueue;
+    private int queueHead;
+    private int queueSize;
+
+    private static final int MAX_SUBSET = 4;
+    // The open cells of the line nakedSubsets is looking at.
+    private final int[] open;
+
+    private final int[] support;
+    private final int[] chosen;
+    private final int[] suffixMin;
+    private final int[] suffixMax;
+    private int unsupported;
+    // Per line slot of the cage being enumerated, the values every filling so far puts in that line.
+    private final int[] required;
+    private final int[] placed;
+    // Per line slot, the values no cell of the line outside the cage can take, so the cage must.
+    private final int[] forced;
+    private int requiredLines;
+    private int[] enumDomains;
+    private int currentCage = -1;
+
+    private int[][] frames = new int[0][];
+    private final List<int[]> solutions = new ArrayList<>();
+    private long nodes;
+    private long nodeLimit = Long.MAX_VALUE;
+    private boolean abandoned;
+    private AtomicBoolean stop;
+
+    public Solver(Puzzle puzzle){
+        this.puzzle = puzzle;
+        this.size = puzzle.getSize();
+        this.cellCount = size * size;
+        this.fullMask = size == 32 ? -1 : (1 << size) - 1;
+        int cageCount = puzzle.getCageCount();
+        cageCells = new int[cageCount][];
+        cageOps = new Operation[cageCount];
+        cageTargets = new int[cageCount];
+        cageDigits = new int[cageCount];
+        cagePeers = new int[cageCount][][];
+        cageLines = new int[cageCount][];
+        rowSlots = new int[cageCount][];
+        colSlots = new int[cageCount][];
+        lineOthers = new int[cageCount][][];
+        fillingsWith = new long[cageCount][][];
+        lineWith = new long[cageCount][][];
+        fillingCount = new int[cageCount];
+        prunes = new int[cageCount];
+        int largest = 1;
+        for (int c = 0; c < cageCount; c++) {
+            PuzzleCage cage = puzzle.getCage(c);
+            int[] cells = cage.getCells();
+            cageCells[c] = cells;
+            cageOps[c] = cage.getOp();
+            cageTargets[c] = cage.getTarget();
+            cageDigits[c] = CageCombinations.of(cage, size).getDigits();
+            cagePeers[c] = new int[cells.length][];
+            for (int i = 0; i < cells.length; i++) {
+                int count = 0;
+                int[] peers = new int[i];
+                for (int j = 0; j < i; j++)
+                    if (cells[i] / size == cells[j] / size || cells[i] % size == cells[j] % size)
+                        peers[count++] = j;
+                cagePeers[c][i] = Arrays.copyOf(peers, count);
+            }
+            int[] lines = new int[2 * cells.length];
+            int lineCount = 0;
+            rowSlots[c] = new int[cells.length];
+            colSlots[c] = new int[cells.length];
+            for (int i = 0; i < cells.length; i++) {
+                rowSlots[c][i] = slot(lines, lineCount, cells[i] / size);
+                if (rowSlots[c][i] == lineCount)
+                    lines[lineCount++] = cells[i] / size;
+                colSlots[c][i] = slot(lines, lineCount, size + cells[i] % size);
+                if (colSlots[c][i] == lineCount)
+                    lines[lineCount++] = size + cells[i] % size;
+            }
+            cageLines[c] = Arrays.copyOf(lines, lineCount);
+            lineOthers[c] = new int[lineCount][];
+            for (int l = 0; l < lineCount; l++) {
+                int[] others = new int[size];
+                int count = 0;
+                for (int k = 0; k < size; k++) {
+                    int cell = lineCell(lines[l], k);
+                    if (puzzle.getCageOf(cell) != c)
+                        others[count++] = cell;
+                }
+                lineOthers[c][l] = Arrays.copyOf(others, count);
+            }
+            largest = Math.max(largest, cells.length);
+        }
+        pending = new int[cellCount + 1];
+        dirty = new boolean[cageCount];
+        cageQueue = new int[Math.max(1, cageCount)];
+        open = new int[size];
+        support = new int[largest];
+        chosen = new int[largest];
+        suffixMin = new int[largest + 1];
+        suffixMax = new int[largest + 1];
+        required = new int[2 * largest];
+        placed = new int[2 * largest];
+        forced = new int[2 * largest];
+    }
+
+    private void buildTable(int cage){
+        List<int[]> fillings = new ArrayList<>();
+        int[] values = new int[cageCells[cage].length];
+        long[] steps = {0};
+        if (!collect(cage, 0, 0, 1, 0, values, fillings, steps))
+            return;
+        int length = values.length;
+        int words = (fillings.size() + 63) / 64;
+        long[][] cells = new long[length * size][words];
+        long[][] lines = new long[cageLines[cage].length * size][words];
+        for (int f = 0; f < fillings.size(); f++) {
+            int[] filling = fillings.get(f);
+            for (int i = 0; i < length; i++) {
+                int v = filling[i] - 1;
+                cells[i * size + v][f >>> 6] |= 1L << f;
+                lines[rowSlots[cage][i] * size + v][f >>> 6] |= 1L << f;
+                lines[colSlots[cage][i] * size + v][f >>> 6] |= 1L << f;
+            }
+        }
+        fillingsWith[cage] = cells;
+        lineWith[cage] = lines;
+        fillingCount[cage] = fillings.size();
+        if (valid.length < words) {
+            valid = new long[words];
+            union = new long[words];
+        }
+    }
+
+    // Lists the fillings of a cage; false once there are more than MAX_FILLINGS or listing them takes
+    // too long to be worth it.
+    private boolean collect(int cage, int index, long sum, long product, int max, int[] values, List<int[]> fillings,
+            long[] steps){
+        if (++steps[0] > 16L * MAX_FILLINGS)
+            return false;
+        int[] cells = cageCells[cage];
+        Operation op = cageOps[cage];
+        int target = cageTargets[cage];
+        if (index == cells.length) {
+            if (op.check(target, sum, product, max))
+                fillings.add(values.clone());
+            return fillings.size() <= MAX_FILLINGS;
+        }
+        int remaining = cells.length - index;
+        if (op == Operation.ADD && (sum + remaining > target || sum + (long) remaining * size < target))
+            return true;
+        int candidates = cageDigits[cage];
+        for (int peer : cagePeers[cage][index])
+            candidates &= ~(1 << (values[peer] - 1));
+        if (index == cells.length - 1)
+            candidates &= lastCellCandidates(op, target, sum, product);
+        for (; candidates != 0; candidates &= candidates - 1) {
+            int value = Integer.numberOfTrailingZeros(candidates) + 1;
+            long nextProduct = product * value;
+            if (op == Operation.MULTIPLY && target % nextProduct != 0)
+                continue;
+            values[index] = value;
+            if (!collect(cage, index + 1, sum + value, nextProduct, Math.max(max, value), values, fillings, steps))
+                return false;
+        }
+        return true;
+    }
+
+    private static int slot(int[] lines, int count, int line){
+        for (int i = 0; i < count; i++)
+            if (lines[i] == line)
+                return i;
+        return count;
+    }
+
+    public int[] solve(){
+        countSolutions(1);
+        return getSolution();
+    }
+
+    // Stops as soon as limit solutions have been found, so countSolutions(2) tells unique puzzles apart
+    // from ones with several solutions without walking the whole search tree.
+    public int countSolutions(int limit){
+        solutions.clear();
+        abandoned = false;
+        nodes = 0;
+        int[] domains = new int[cellCount];
+        if (!initialize(domains))
+            return 0;
+        return search(domains, 0, limit);
+    }
+
+    public int[] getSolution(){
+        return solutions.isEmpty() ? null : solutions.get(0);
+    }
+
+    public List<int[]> getSolutions(){
+        return solutions;
+    }
+
+    // Search nodes visited by the last countSolutions or solve.
+    public long getNodes(){
+        return nodes;
+    }
+
+    // Once the search has visited this many nodes it gives up; the count found so far is returned and
+    // isAbandoned() reports that it may be incomplete.
+    public void setNodeLimit(long nodeLimit){
+        this.nodeLimit = nodeLimit;
+    }
+
+    public boolean isAbandoned(){
+        return abandoned;
+    }
+
+    public Puzzle getPuzzle(){
+        return puzzle;
+    }
+
+    boolean initialize(int[] domains){
+        reset();
+        Arrays.fill(domains, fullMask);
+        // Digits that appear in no combination of a cage are gone before the first enumeration.
+        for (int c = 0; c < cageCells.length; c++) {
+            for (int cell : cageCells[c])
+                if (!restrict(domains, cell, cageDigits[c]))
+                    return false;
+            markDirty(c);
+        }
+        return propagate(domains);
+    }
+
+    boolean assign(int[] domains, int cell, int value){
+        reset();
+        int bit = 1 << (value - 1);
+        if ((domains[cell] & bit) == 0)
+            return false;
+        if (domains[cell] != bit) {
+            domains[cell] = bit;
+            pending[pendingTop++] = cell;
+            markCellCage(cell);
+        }
+        return propagate(domains);
+    }
+
+    // Searches below an already propagated domain array; the search gives up early once stop is set
+    // by another thread.
+    int searchFrom(int[] domains, int limit, AtomicBoolean stop){
+        this.stop = stop;
+        solutions.clear();
+        try {
+            return search(domains, 0, limit);
+        } finally {
+            this.stop = null;
+        }
+    }
+
+    int chooseCell(int[] domains){
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < cellCount; cell++) {
+            int count = Integer.bitCount(domains[cell]);
+            if (count > 1 && count < bestCount) {
+                best = cell;
+                bestCount = count;
+                if (count == 2)
+                    break;
+            }
+        }
+        return best;
+    }
+
+    static int[] toValues(int[] domains){
+        int[] values = new int[domains.length];
+        for (int i = 0; i < domains.length; i++)
+            values[i] = Integer.numberOfTrailingZeros(domains[i]) + 1;
+        return values;
+    }
+
+    private int search(int[] domains, int depth, int limit){
+        if (stop != null && stop.get())
+            return 0;
+        if (nodes >= nodeLimit) {
+            abandoned = true;
+            return 0;
+        }
+        nodes++;
+        int cell = chooseCell(domains);
+        if (cell == -1) {
+            solutions.add(toValues(domains));
+            return 1;
+        }
+        int[] frame = frame(depth);
+        int found = 0;
+        for (int candidates = domains[cell]; candidates != 0; candidates &= candidates - 1) {
+            int value = Integer.numberOfTrailingZeros(candidates) + 1;
+            System.arraycopy(domains, 0, frame, 0, cellCount);
+            if (assign(frame, cell, value)) {
+                found += search(frame, depth + 1, limit - found);
+                if (found >= limit)
+                    return found;
+            }
+        }
+        return found;
+    }
+
+    private int[] frame(int depth){
+        if (depth >= frames.length)
+            frames = Arrays.copyOf(frames, Math.max(depth + 1, frames.length * 2));
+        if (frames[depth] == null)
+            frames[depth] = new int[cellCount];
+        return frames[depth];
+    }
+
+    private void reset(){
+        pendingTop = 0;
+        while (queueSize > 0) {
+            dirty[cageQueue[queueHead]] = false;
+            queueHead = (queueHead + 1) % cageQueue.length;
+            queueSize--;
+        }
+        queueHead = 0;
+    }
+
+    private void markDirty(int cage){
+        if (!dirty[cage]) {
+            dirty[cage] = true;
+            cageQueue[(queueHead + queueSize) % cageQueue.length] = cage;
+            queueSize++;
+        }
+    }
+
+    private void markCellCage(int cell){
+        int cage = puzzle.getCageOf(cell);
+        if (cage != -1 && cage != currentCage)
+            markDirty(cage);
+    }
+
+    private boolean propagate(int[] domains){
+        while (true) {
+            while (pendingTop > 0 || queueSize > 0) {
+                while (pendingTop > 0) {
+                    int cell = pending[--pendingTop];
+                    if (!eliminatePeers(domains, cell))
+                        return false;
+                }
+                if (queueSize > 0) {
+                    int cage = cageQueue[queueHead];
+                    queueHead = (queueHead + 1) % cageQueue.length;
+                    queueSize--;
+                    dirty[cage] = false;
+                    if (!pruneCage(domains, cage))
+                        return false;
+                }
+            }
+            int result = hiddenSingles(domains);
+            if (result == 0)
+                result = nakedSubsets(domains);
+            if (result < 0)
+                return false;
+            if (result == 0)
+                return true;
+        }
+    }
+
+    private boolean eliminatePeers(int[] domains, int cell){
+        int bit = domains[cell];
+        int row = cell / size;
+        int col = cell % size;
+        for (int k = 0; k < size; k++) {
+            if (k != col && !remove(domains, row * size + k, bit))
+                return false;
+            if (k != row && !remove(domains, k * size + col, bit))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean remove(int[] domains, int cell, int mask){
+        int old = domains[cell];
+        int now = old & ~mask;
+        if (now == old)
+            return true;
+        if (now == 0)
+            return false;
+        domains[cell] = now;
+        if ((now & (now - 1)) == 0)
+            pending[pendingTop++] = cell;
+        markCellCage(cell);
+        return true;
+    }
+
+    private boolean restrict(int[] domains, int cell, int mask){
+        return remove(domains, cell, domains[cell] & ~mask);
+    }
+
+    // Generalised arc consistency for one cage: enumerate every filling of the cage that fits the
+    // current domains and keep only the values that take part in at least one of them. A value that every
+    // filling puts somewhere in a row or column is also taken from that line's cells outside the cage.
+    private boolean pruneCage(int[] domains, int cage){
+        int[] cells = cageCells[cage];
+        int length = cells.length;
+        computeSupport(domains, cage, true);
+        currentCage = cage;
+        try {
+            for (int i = 0; i < length; i++) {
+                if (support[i] == 0 || !restrict(domains, cells[i], support[i]))
+                    return false;
+            }
+            for (int l = 0; l < cageLines[cage].length; l++) {
+                if (required[l] == 0)
+                    continue;
+                for (int cell : lineOthers[cage][l])
+                    if (!remove(domains, cell, required[l]))
+                        return false;
+            }
+            return true;
+        } finally {
+            currentCage = -1;
+        }
+    }
+
+    // The values of each cage cell, in cage order, that take part in at least one filling of the cage
+    // that fits the domains. The returned array is reused by the next call.
+    int[] cageSupport(int[] domains, int cage){
+        computeSupport(domains, cage, false);
+        return support;
+    }
+
+    // With lines set, also works out which values the cage must keep to or from its rows and columns
+    // (required and forced); without, the support is the cage's operation alone, as hints explain it.
+    private void computeSupport(int[] domains, int cage, boolean lines){
+        int[] cells = cageCells[cage];
+        int length = cells.length;
+        unsupported = 0;
+        suffixMin[length] = 0;
+        suffixMax[length] = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            int domain = domains[cells[i]];
+            support[i] = 0;
+            unsupported++;
+            suffixMin[i] = suffixMin[i + 1] + Integer.numberOfTrailingZeros(domain) + 1;
+            suffixMax[i] = suffixMax[i + 1] + 32 - Integer.numberOfLeadingZeros(domain);
+        }
+        if (++prunes[cage] == TABLE_AFTER)
+            buildTable(cage);
+        // Only values the rest of a line still allows are worth proving required. Proving it takes every
+        // filling, so it is left to cages with a table; enumerating stops at the first fillings that
+        // support every value.
+        boolean table = fillingsWith[cage] != null;
+        requiredLines = 0;
+        for (int l = 0; l < cageLines[cage].length; l++) {
+            int rest = 0;
+            if (lines)
+                for (int cell : lineOthers[cage][l])
+                    rest |= domains[cell];
+            required[l] = table ? rest : 0;
+            forced[l] = lines ? fullMask & ~rest : 0;
+            if (required[l] != 0)
+                requiredLines++;
+        }
+        if (table) {
+            supportFromTable(domains, cage);
+            return;
+        }
+        enumDomains = domains;
+        enumerate(cage, 0, 0, 1, 0);
+    }
+
+    // The same result as enumerate, from the cage's table: the fillings that fit the domains are the ones
+    // left after intersecting, per cell, the fillings of its remaining values.
+    private void supportFromTable(int[] domains, int cage){
+        int[] cells = cageCells[cage];
+        long[][] table = fillingsWith[cage];
+        int words = (fillingCount[cage] + 63) / 64;
+        Arrays.fill(valid, 0, words, -1L);
+        if (fillingCount[cage] % 64 != 0)
+            valid[words - 1] = (1L << fillingCount[cage]) - 1;
+        for (int i = 0; i < cells.length; i++) {
+            int domain = domains[cells[i]];
+            if ((domain | cageDigits[cage]) == domain)
+                continue;
+            Arrays.fill(union, 0, words, 0);
+            for (int rest = domain; rest != 0; rest &= rest - 1) {
+                long[] with = table[i * size + Integer.numberOfTrailingZeros(rest)];
+                for (int w = 0; w < words; w++)
+                    union[w] |= with[w];
+            }
+            for (int w = 0; w < words; w++)
+                valid[w] &= union[w];
+        }
+        long[][] lines = lineWith[cage];
+        for (int l = 0; l < cageLines[cage].length; l++)
+            for (int rest = forced[l]; rest != 0; rest &= rest - 1) {
+                long[] with = lines[l * size + Integer.numberOfTrailingZeros(rest)];
+                for (int w = 0; w < words; w++)
+                    valid[w] &= with[w];
+            }
+        for (int i = 0; i < cells.length; i++)
+            for (int rest = domains[cells[i]]; rest != 0; rest &= rest - 1) {
+                int v = Integer.numberOfTrailingZeros(rest);
+                if (intersects(table[i * size + v], words))
+                    support[i] |= 1 << v;
+            }
+        for (int l = 0; l < cageLines[cage].length; l++) {
+            int found = 0;
+            for (int rest = required[l]; rest != 0; rest &= rest - 1) {
+                int v = Integer.numberOfTrailingZeros(rest);
+                if (covers(lines[l * size + v], words))
+                    found |= 1 << v;
+            }
+            required[l] = found;
+        }
+    }
+
+    private boolean intersects(long[] fillings, int words){
+        for (int w = 0; w < words; w++)
+            if ((valid[w] & fillings[w]) != 0)
+                return true;
+        return false;
+    }
+
+    // Whether every filling left puts the value there; with none left nothing is required.
+    private boolean covers(long[] fillings, int words){
+        boolean any = false;
+        for (int w = 0; w < words; w++) {
+            if ((valid[w] & ~fillings[w]) != 0)
+                return false;
+            any |= valid[w] != 0;
+        }
+        return any;
+    }
+
+    private boolean enumerate(int cage, int index, long sum, long product, int max){
+        int[] cells = cageCells[cage];
+        Operation op = cageOps[cage];
+        int target = cageTargets[cage];
+        if (index == cells.length) {
+            if (!op.check(target, sum, product, max))
+                return false;
+            int lines = cageLines[cage].length;
+            Arrays.fill(placed, 0, lines, 0);
+            for (int i = 0; i < cells.length; i++) {
+                int bit = 1 << (chosen[i] - 1);
+                placed[rowSlots[cage][i]] |= bit;
+                placed[colSlots[cage][i]] |= bit;
+            }
+            for (int l = 0; l < lines; l++)
+                if ((placed[l] & forced[l]) != forced[l])
+                    return false;
+            for (int i = 0; i < cells.length; i++) {
+                int bit = 1 << (chosen[i] - 1);
+                if ((support[i] & bit) == 0) {
+                    support[i] |= bit;
+                    if (support[i] == enumDomains[cells[i]])
+                        unsupported--;
+                }
+            }
+            if (requiredLines > 0)
+                for (int l = 0; l < lines; l++)
+                    if (required[l] != 0 && (required[l] &= placed[l]) == 0)
+                        requiredLines--;
+            return unsupported == 0 && requiredLines == 0;
+        }
+        if (op == Operation.ADD && (sum + suffixMin[index] > target || sum + suffixMax[index] < target))
+            return false;
+        int candidates = enumDomains[cells[index]];
+        for (int peer : cagePeers[cage][index])
+            candidates &= ~(1 << (chosen[peer] - 1));
+        if (index == cells.length - 1)
+            candidates &= lastCellCandidates(op, target, sum, product);
+        for (; candidates != 0; candidates &= candidates - 1) {
+            int value = Integer.numberOfTrailingZeros(candidates) + 1;
+            long nextProduct = product * value;
+            if (op == Operation.MULTIPLY && target % nextProduct != 0)
+                continue;
+            chosen[index] = value;
+            if (enumerate(cage, index + 1, sum + value, nextProduct, Math.max(max, value)))
+                return true;
+        }
+        return false;
+    }
+
+    // For sums and products the last value of a filling is fixed by the others.
+    private int lastCellCandidates(Operation op, int target, long sum, long product){
+        long value;
+        if (op == Operation.ADD)
+            value = target - sum;
+        else if (op == Operation.MULTIPLY && target % product == 0)
+            value = target / product;
+        else if (op == Operation.MULTIPLY)
+            return 0;
+        else
+            return fullMask;
+        return value >= 1 && value <= size ? 1 << (value - 1) : 0;
+    }
+
+    // Returns -1 on contradiction, 1 if a hidden single was placed and 0 when nothing changed.
+    private int hiddenSingles(int[] domains){
+        int result = 0;
+        for (int line = 0; line < 2 * size; line++) {
+            int once = 0;
+            int twice = 0;
+            for (int k = 0; k < size; k++) {
+                int domain = domains[lineCell(line, k)];
+                twice |= once & domain;
+                once |= domain;
+            }
+            if (once != fullMask)
+                return -1;
+            int singles = once & ~twice;
+            if (singles == 0)
+                continue;
+            for (int k = 0; k < size; k++) {
+                int cell = lineCell(line, k);
+                int domain = domains[cell];
+                int single = domain & singles;
+                if (single != 0 && single != domain) {
+                    if ((single & (single - 1)) != 0)
+                        return -1;
+                    if (!restrict(domains, cell, single))
+                        return -1;
+                    result = 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    // k open cells of a line whose candidates together are only k values hold those values, so no other
+    // cell of the line can. Looking at subsets of up to half the open cells also finds the hidden subsets,
+    // which are the complements of naked ones. Subsets stop at MAX_SUBSET cells, since the number of them
+    // grows too fast on large grids; up to 9x9 that covers every subset. Returns like hiddenSingles.
+    private int nakedSubsets(int[] domains){
+        for (int line = 0; line < 2 * size; line++) {
+            int count = 0;
+            for (int k = 0; k < size; k++) {
+                int cell = lineCell(line, k);
+                if ((domains[cell] & (domains[cell] - 1)) != 0)
+                    open[count++] = cell;
+            }
+            if (count < 4)
+                continue;
+            int result = subsets(domains, count, 0, 0, 0);
+            if (result != 0)
+                return result;
+        }
+        return 0;
+    }
+
+    private int subsets(int[] domains, int count, int start, int chosenCells, int chosenValues){
+        for (int i = start; i < count; i++) {
+            int cells = chosenCells | 1 << i;
+            int values = chosenValues | domains[open[i]];
+            int k = Integer.bitCount(cells);
+            int n = Integer.bitCount(values);
+            if (n > Math.min(count / 2, MAX_SUBSET))
+                continue;
+            if (n < k)
+                return -1;
+            if (n == k) {
+                int result = 0;
+                for (int j = 0; j < count; j++)
+                    if ((cells & 1 << j) == 0 && (domains[open[j]] & values) != 0) {
+                        if (!remove(domains, open[j], values))
+                            return -1;
+                        result = 1;
+                    }
+                if (result != 0)
+                    return result;
+                continue;
+            }
+            int result = subsets(domains, count, i + 1, cells, values);
+            if (result != 0)
+                return result;
+        }
+        return 0;
+    }
+
+    private int lineCell(int line, int k){
+        return line < size ? line * size + k : k * size + (line - size);
+    }
+
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            Puzzle puzzle = Puzzle.fromFile(new File(arg));
+            Solver solver = new Solver(puzzle);
+            long start = System.nanoTime();
+            int[] values = solver.solve();
+            long elapsed = System.nanoTime() - start;
+            System.out.println(arg + ": " + (values == null ? "no solution" : "solved") + " in "
+                    + (elapsed / 1000) + " us, " + solver.getNodes() + " nodes");
+            if (values != null)
+                System.out.print(format(values, puzzle.getSize()));
+        }
+    }
+
+    public static String format(int[] values, int size){
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (j > 0)
+                    builder.append(' ');
+                builder.append(values[i * size + j]);
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,95 @@
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+// The rule-engine paths benchmarks.ValidationBenchmark measures, set up on a generated board holding its
+// solution. JMH only runs benchmarks from a named package, which cannot see the game classes, so they
+// are handed over as plain IntSuppliers keyed by name.
+public class ValidationPaths {
+    public static final String[] MIX_NAMES = {"standard", "small", "large"};
+    private static final int[][] MIXES = {{1, 2, 2, 2, 3, 3, 3, 4, 4}, {1, 1, 2}, {4, 5, 6, 7, 8}};
+
+    public static Map<String, IntSupplier> create(int size, String mix, long seed){
+        int m = 0;
+        while (!MIX_NAMES[m].equals(mix))
+            if (++m == MIX_NAMES.length)
+                throw new IllegalArgumentException("Unknown cage mix " + mix);
+        PuzzleGenerator generator = new PuzzleGenerator(size, seed);
+        Puzzle puzzle = generator.generateLayout(MIXES[m]);
+        int[] solution = generator.getSolution();
+
+        Board board = new Board(puzzle);
+        for (int cell = 0; cell < solution.length; cell++)
+            board.setValue(cell / size, cell % size, solution[cell]);
+        int[][] grid = new int[size][size];
+        for (int cell = 0; cell < solution.length; cell++)
+            grid[cell / size][cell % size] = solution[cell];
+        int[][] cages = new int[puzzle.getCageCount()][];
+        for (int c = 0; c < cages.length; c++)
+            cages[c] = puzzle.getCage(c).getCells();
+        String text = String.join("\n", puzzle.toLines()) + "\n";
+        CageConnectivity connectivity = new CageConnectivity();
+        int[] position = new int[1];
+
+        Map<String, IntSupplier> paths = new LinkedHashMap<>();
+        paths.put("rowsAndColsFullScan", () -> legacyAreRowsAndColsCorrect(grid) ? 1 : 0);
+        paths.put("editAndIsGameWon", () -> {
+            // Alternates one cell between a wrong and the right value, as a player fixing a mistake.
+            int cell = position[0]++ % solution.length;
+            int row = cell / size;
+            int col = cell % size;
+            board.setValue(row, col, solution[cell] % size + 1);
+            int won = board.isGameWon() ? 1 : 0;
+            board.setValue(row, col, solution[cell]);
+            return won + (board.isGameWon() ? 1 : 0);
+        });
+        paths.put("mistakeHighlightPass", () -> {
+            int mistakes = 0;
+            for (int row = 0; row < size; row++)
+                for (int col = 0; col < size; col++)
+                    if (board.hasRowOrColMistake(row, col))
+                        mistakes++;
+            return mistakes;
+        });
+        paths.put("allCagesCorrect", () -> {
+            int correct = 0;
+            for (int c = 0; c < cages.length; c++)
+                if (board.isCageCorrect(c))
+                    correct++;
+            return correct;
+        });
+        paths.put("cageAdjacency", () -> {
+            int connected = 0;
+            for (int[] cage : cages)
+                if (connectivity.isConnected(cage, size))
+                    connected++;
+            return connected;
+        });
+        paths.put("loadPuzzle", () -> {
+            try (PuzzleReader reader = new PuzzleReader(new StringReader(text))) {
+                return reader.read().getCageCount();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return paths;
+    }
+
+    // The check MathDoku ran on every keystroke before the conflict counts were kept incrementally.
+    private static boolean legacyAreRowsAndColsCorrect(int[][] cells){
+        int size = cells.length;
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++) {
+                for (int r = 0; r < size; r++)
+                    if (i != r && cells[i][j] == cells[r][j] && cells[i][j] != 0)
+                        return false;
+                for (int c = 0; c < size; c++)
+                    if (j != c && cells[i][j] == cells[i][c] && cells[i][j] != 0)
+                        return false;
+            }
+        return true;
+    }
+}
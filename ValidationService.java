@@ -0,0 +1,149 @@
+import java.io.Closeable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Checks snapshots of a board on a background thread and hands the outcome to the UI thread. Snapshots
+// that are superseded before the worker gets to them are skipped, and however many results are ready
+// only one task at a time is queued on the UI thread, which then takes the newest one.
+public class ValidationService implements Closeable {
+    public static final int LINE_MISTAKE = 1;
+    public static final int CAGE_MISTAKE = 2;
+
+    public interface Listener {
+        void validated(Result result);
+    }
+
+    public static final class Result {
+        private final long version;
+        private final long submitted;
+        private final int[] mistakes;
+        private final boolean won;
+
+        Result(long version, long submitted, int[] mistakes, boolean won){
+            this.version = version;
+            this.submitted = submitted;
+            this.mistakes = mistakes;
+            this.won = won;
+        }
+
+        public long getVersion(){
+            return version;
+        }
+
+        // System.nanoTime() when the snapshot was submitted.
+        public long getSubmitted(){
+            return submitted;
+        }
+
+        // LINE_MISTAKE and CAGE_MISTAKE flags for a cell.
+        public int getMistakes(int cell){
+            return mistakes[cell];
+        }
+
+        public boolean isWon(){
+            return won;
+        }
+    }
+
+    private static final class Snapshot {
+        final long version;
+        final long submitted;
+        final int[] values;
+
+        Snapshot(long version, long submitted, int[] values){
+            this.version = version;
+            this.submitted = submitted;
+            this.values = values;
+        }
+    }
+
+    private final Puzzle puzzle;
+    private final Executor uiThread;
+    private final Listener listener;
+    private final ExecutorService worker;
+    private final AtomicReference<Snapshot> pending = new AtomicReference<>();
+    private final AtomicBoolean workerScheduled = new AtomicBoolean();
+    private final AtomicReference<Result> ready = new AtomicReference<>();
+    private final AtomicBoolean uiScheduled = new AtomicBoolean();
+    // Only touched by the worker thread: a board kept in step with the last snapshot checked.
+    private final Board board;
+
+    public ValidationService(Puzzle puzzle, Executor uiThread, Listener listener){
+        this.puzzle = puzzle;
+        this.uiThread = uiThread;
+        this.listener = listener;
+        this.board = new Board(puzzle);
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "validation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // The values array must not be changed after it is handed over.
+    public void submit(long version, int[] values){
+        pending.set(new Snapshot(version, System.nanoTime(), values));
+        if (workerScheduled.compareAndSet(false, true))
+            worker.execute(this::drain);
+    }
+
+    @Override
+    public void close(){
+        worker.shutdownNow();
+    }
+
+    private void drain(){
+        while (true) {
+            Snapshot snapshot = pending.getAndSet(null);
+            if (snapshot == null) {
+                workerScheduled.set(false);
+                if (pending.get() == null || !workerScheduled.compareAndSet(false, true))
+                    return;
+                continue;
+            }
+            Result result = validate(snapshot);
+            if (pending.get() != null)
+                continue;
+            ready.set(result);
+            if (uiScheduled.compareAndSet(false, true))
+                uiThread.execute(this::deliver);
+        }
+    }
+
+    private void deliver(){
+        uiScheduled.set(false);
+        Result result = ready.getAndSet(null);
+        if (result != null)
+            listener.validated(result);
+    }
+
+    // Only cells that differ from the previous snapshot are applied, so the board's incremental counts
+    // do the work and a check costs one pass over the values.
+    private Result validate(Snapshot snapshot){
+        GameEvents.Validation event = new GameEvents.Validation();
+        event.begin();
+        int size = board.getSize();
+        int[] values = snapshot.values;
+        for (int cell = 0; cell < values.length; cell++)
+            if (board.getValue(cell / size, cell % size) != values[cell])
+                board.setValue(cell / size, cell % size, values[cell]);
+        int[] mistakes = new int[values.length];
+        for (int cell = 0; cell < values.length; cell++) {
+            int cage = puzzle.getCageOf(cell);
+            mistakes[cell] = (board.hasRowOrColMistake(cell / size, cell % size) ? LINE_MISTAKE : 0)
+                    | (cage != -1 && board.hasCageMistake(cage) ? CAGE_MISTAKE : 0);
+        }
+        Result result = new Result(snapshot.version, snapshot.submitted, mistakes, board.isGameWon());
+        if (event.shouldCommit()) {
+            event.version = snapshot.version;
+            for (int mistake : mistakes)
+                if (mistake != 0)
+                    event.mistakes++;
+            event.commit();
+        }
+        return result;
+    }
+}
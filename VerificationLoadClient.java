@@ -0,0 +1,156 @@
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load generator for VerificationServer. It solves the puzzles itself, then keeps a number of client
+// threads posting grids for a fixed time: half are the solution and half have two cells swapped. Each
+// answer is checked against what it should be, and the report gives requests per second and latency.
+// With -embedded the server runs in the same process on a free port.
+public class VerificationLoadClient {
+    public static void main(String[] args) throws Exception {
+        File source = null;
+        int port = 8080;
+        int threads = 16;
+        int seconds = 10;
+        int limit = 1000;
+        boolean embedded = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port"))
+                port = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-threads"))
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-seconds"))
+                seconds = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-puzzles"))
+                limit = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-embedded"))
+                embedded = true;
+            else
+                source = new File(args[i]);
+        }
+        if (source == null || !source.exists()) {
+            System.err.println("Usage: java VerificationLoadClient <puzzles.mdka or puzzle directory> [-port 8080] "
+                    + "[-threads 16] [-seconds 10] [-puzzles 1000] [-embedded]");
+            System.exit(1);
+        }
+
+        List<String> ids = new ArrayList<>();
+        List<int[]> solutions = new ArrayList<>();
+        solve(source, limit, ids, solutions);
+        if (ids.isEmpty()) {
+            System.err.println(source + " has no solvable puzzles");
+            System.exit(1);
+        }
+        VerificationServer server = null;
+        if (embedded) {
+            server = new VerificationServer(source, 0);
+            server.start();
+            port = server.getPort();
+        }
+        System.out.println(ids.size() + " puzzles, " + threads + " client threads, " + seconds + " s against port " + port);
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + port + "/verify?puzzle=";
+        LatencyRecorder latency = new LatencyRecorder();
+        AtomicLong requests = new AtomicLong();
+        AtomicLong wrong = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            workers.execute(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                while (System.nanoTime() < end) {
+                    int p = random.nextInt(ids.size());
+                    int[] grid = solutions.get(p).clone();
+                    boolean valid = random.nextBoolean() || !swapTwo(grid, random);
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(base + ids.get(p)))
+                            .POST(HttpRequest.BodyPublishers.ofString(format(grid))).build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        latency.record(System.nanoTime() - start);
+                        requests.incrementAndGet();
+                        if (response.statusCode() != 200 || response.body().startsWith("{\"valid\":true") != valid)
+                            wrong.incrementAndGet();
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        if (server != null)
+            server.stop();
+
+        System.out.printf("%d requests, %.0f per second, %d wrong answers, %d failed%n", requests.get(),
+                requests.get() / (double) seconds, wrong.get(), failed.get());
+        System.out.println("Latency: " + latency.summary());
+    }
+
+    private static void solve(File source, int limit, List<String> ids, List<int[]> solutions) throws IOException {
+        if (source.isFile()) {
+            try (PuzzleArchive archive = PuzzleArchive.open(source)) {
+                for (int k = 0; k < archive.size() && ids.size() < limit; k++)
+                    add(Integer.toString(k), archive.get(k), ids, solutions);
+            }
+            return;
+        }
+        File[] files = source.listFiles(File::isFile);
+        Arrays.sort(files);
+        for (File file : files) {
+            if (ids.size() == limit)
+                break;
+            try {
+                add(file.getName(), PuzzleReader.readFile(file), ids, solutions);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println(file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void add(String id, Puzzle puzzle, List<String> ids, List<int[]> solutions){
+        int[] solution = new Solver(puzzle).solve();
+        if (solution != null) {
+            ids.add(id);
+            solutions.add(solution);
+        }
+    }
+
+    // Swaps two different values of the grid; false when every value is the same (a 1x1 grid).
+    private static boolean swapTwo(int[] grid, SplittableRandom random){
+        int a = random.nextInt(grid.length);
+        for (int tries = 0; tries < 4 * grid.length; tries++) {
+            int b = random.nextInt(grid.length);
+            if (grid[a] != grid[b]) {
+                int value = grid[a];
+                grid[a] = grid[b];
+                grid[b] = value;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String format(int[] grid){
+        StringBuilder text = new StringBuilder(grid.length * 3);
+        for (int i = 0; i < grid.length; i++)
+            text.append(i == 0 ? "" : " ").append(grid[i]);
+        return text.toString();
+    }
+}
@@ -0,0 +1,212 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Checks finished grids sent over HTTP on localhost, so a submission can be verified without trusting the
+// client. POST /verify?puzzle=<id> with the grid's values row by row, separated by spaces, commas or new
+// lines, answers {"valid":true} or {"valid":false,"conflicts":[...]} with the 1-based numbers of the cells
+// that break a row, column or cage. Puzzle ids are the record numbers of a .mdka archive (from 0) or the
+// file names in a directory of puzzle files; puzzles are parsed once and cached.
+public class VerificationServer {
+    private static final int MAX_BODY = 1 << 16;
+    // Past this many puzzles (a large archive) the rest are read from the mapped archive each time.
+    private static final int MAX_CACHED = 100000;
+
+    private final File source;
+    private final PuzzleArchive archive;
+    private final Map<String, Puzzle> puzzles = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public VerificationServer(File source, int port) throws IOException {
+        this.source = source;
+        this.archive = source.isFile() ? PuzzleArchive.open(source) : null;
+        // Without this the server writes headers and body in separate packets and every response waits out
+        // the client's delayed ACK (about 40 ms).
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.executor = requestExecutor();
+        server.createContext("/verify", this::handle);
+        server.setExecutor(executor);
+    }
+
+    // A virtual thread per request on runtimes that have them (JDK 21 and later), otherwise a pool of
+    // platform threads; the work per request is short and never blocks on anything but the socket.
+    static ExecutorService requestExecutor(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(2, 2 * Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "verification");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start(){
+        server.start();
+    }
+
+    public int getPort(){
+        return server.getAddress().getPort();
+    }
+
+    public void stop() throws IOException {
+        server.stop(0);
+        executor.shutdown();
+        if (archive != null)
+            archive.close();
+    }
+
+    // The numbers (0-based) of the cells that conflict; an empty array for a solved grid.
+    public static int[] conflicts(Puzzle puzzle, int[] values){
+        int size = puzzle.getSize();
+        Board board = new Board(puzzle);
+        for (int cell = 0; cell < values.length; cell++)
+            board.setValue(cell / size, cell % size, values[cell]);
+        int[] found = new int[values.length];
+        int count = 0;
+        for (int cell = 0; cell < values.length; cell++) {
+            int cage = puzzle.getCageOf(cell);
+            if (board.hasRowOrColMistake(cell / size, cell % size) || cage != -1 && board.hasCageMistake(cage))
+                found[count++] = cell;
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "{\"error\":\"use POST\"}");
+                return;
+            }
+            String id = parameter(exchange.getRequestURI().getRawQuery(), "puzzle");
+            Puzzle puzzle = id == null ? null : puzzle(id);
+            if (puzzle == null) {
+                respond(exchange, 404, "{\"error\":\"unknown puzzle\"}");
+                return;
+            }
+            int[] values;
+            try (InputStream body = exchange.getRequestBody()) {
+                values = parseGrid(body, puzzle.getSize());
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, "{\"error\":\"" + e.getMessage() + "\"}");
+                return;
+            }
+            int[] conflicts = conflicts(puzzle, values);
+            StringBuilder json = new StringBuilder(conflicts.length == 0 ? "{\"valid\":true}" : "{\"valid\":false,\"conflicts\":[");
+            for (int i = 0; i < conflicts.length; i++)
+                json.append(i == 0 ? "" : ",").append(conflicts[i] + 1);
+            if (conflicts.length > 0)
+                json.append("]}");
+            respond(exchange, 200, json.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Puzzle puzzle(String id){
+        Puzzle cached = puzzles.get(id);
+        if (cached != null)
+            return cached;
+        Puzzle puzzle;
+        try {
+            if (archive != null) {
+                int k = Integer.parseInt(id);
+                if (k < 0 || k >= archive.size())
+                    return null;
+                puzzle = archive.get(k);
+            }
+            else {
+                File file = new File(source, id);
+                if (id.contains("/") || id.contains("\\") || id.startsWith(".") || !file.isFile())
+                    return null;
+                puzzle = PuzzleReader.readFile(file);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        if (puzzles.size() < MAX_CACHED)
+            puzzles.putIfAbsent(id, puzzle);
+        return puzzle;
+    }
+
+    private static String parameter(String query, String name){
+        if (query == null)
+            return null;
+        for (String pair : query.split("&"))
+            if (pair.startsWith(name + "="))
+                return URLDecoder.decode(pair.substring(name.length() + 1), StandardCharsets.UTF_8);
+        return null;
+    }
+
+    // Reads exactly size*size values between 1 and size.
+    static int[] parseGrid(InputStream in, int size) throws IOException {
+        byte[] body = in.readNBytes(MAX_BODY + 1);
+        if (body.length > MAX_BODY)
+            throw new IllegalArgumentException("grid is too long");
+        int[] values = new int[size * size];
+        int count = 0;
+        int i = 0;
+        while (i < body.length) {
+            byte b = body[i];
+            if (b == ' ' || b == ',' || b == '\n' || b == '\r' || b == '\t') {
+                i++;
+                continue;
+            }
+            int value = 0;
+            int digits = 0;
+            for (; i < body.length && body[i] >= '0' && body[i] <= '9' && value <= size; i++, digits++)
+                value = value * 10 + body[i] - '0';
+            if (digits == 0 || value < 1 || value > size)
+                throw new IllegalArgumentException("values must be numbers from 1 to " + size);
+            if (count == values.length)
+                throw new IllegalArgumentException("expected " + values.length + " values");
+            values[count++] = value;
+        }
+        if (count != values.length)
+            throw new IllegalArgumentException("expected " + values.length + " values");
+        return values;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        File source = null;
+        int port = 8080;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port"))
+                port = Integer.parseInt(args[++i]);
+            else
+                source = new File(args[i]);
+        }
+        if (source == null || !source.exists()) {
+            System.err.println("Usage: java VerificationServer <puzzles.mdka or puzzle directory> [-port 8080]");
+            System.exit(1);
+        }
+        VerificationServer server = new VerificationServer(source, port);
+        server.start();
+        System.out.println("Verifying puzzles from " + source + " on http://localhost:" + server.getPort() + "/verify");
+    }
+}
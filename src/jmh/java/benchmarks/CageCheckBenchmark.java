@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Checks every cage of a solved board, once by parsing the operation string as MathDoku used to and
+// once with the pre-parsed Operation. One operation is a whole board; run with -prof gc for bytes/board.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CageCheckBenchmark {
+    @Param("puzzles/hard/9x9-01.txt")
+    String file;
+
+    private BooleanSupplier[] stringParsing;
+    private BooleanSupplier[] preParsed;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp(){
+        Map<String, BooleanSupplier[]> checks = (Map<String, BooleanSupplier[]>) GameClasses.call("CageChecks", "create", file);
+        stringParsing = checks.get("stringParsing");
+        preParsed = checks.get("preParsed");
+    }
+
+    @Benchmark
+    public void stringParsing(Blackhole blackhole){
+        for (BooleanSupplier cage : stringParsing)
+            blackhole.consume(cage.getAsBoolean());
+    }
+
+    @Benchmark
+    public void preParsed(Blackhole blackhole){
+        for (BooleanSupplier cage : preParsed)
+            blackhole.consume(cage.getAsBoolean());
+    }
+}
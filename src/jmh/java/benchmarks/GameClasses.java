@@ -0,0 +1,26 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+// The game classes sit in the default package, which a named package cannot import. The benchmarks
+// call their static setup methods by name once per trial and then only touch java.util types.
+final class GameClasses {
+    private GameClasses(){
+    }
+
+    static Object call(String className, String methodName, Object... args){
+        try {
+            for (Method method : Class.forName(className).getMethods())
+                if (method.getName().equals(methodName) && method.getParameterCount() == args.length)
+                    return method.invoke(null, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        throw new IllegalStateException("No method " + className + "." + methodName);
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Measures the rule-engine paths on generated boards from 4x4 to 32x32 with three cage mixes.
+// Run with -prof gc for the bytes allocated per operation (gc.alloc.rate.norm) and with
+// -bm sample for the 50th/99th percentiles.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+    @Param({"4", "6", "9", "12", "16", "24", "32"})
+    int size;
+
+    @Param({"standard", "small", "large"})
+    String mix;
+
+    @Param("42")
+    long seed;
+
+    private IntSupplier rowsAndColsFullScan;
+    private IntSupplier editAndIsGameWon;
+    private IntSupplier mistakeHighlightPass;
+    private IntSupplier allCagesCorrect;
+    private IntSupplier cageAdjacency;
+    private IntSupplier loadPuzzle;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp(){
+        Map<String, IntSupplier> paths = (Map<String, IntSupplier>) GameClasses.call("ValidationPaths", "create", size, mix, seed);
+        rowsAndColsFullScan = paths.get("rowsAndColsFullScan");
+        editAndIsGameWon = paths.get("editAndIsGameWon");
+        mistakeHighlightPass = paths.get("mistakeHighlightPass");
+        allCagesCorrect = paths.get("allCagesCorrect");
+        cageAdjacency = paths.get("cageAdjacency");
+        loadPuzzle = paths.get("loadPuzzle");
+    }
+
+    @Benchmark
+    public int rowsAndColsFullScan(){
+        return rowsAndColsFullScan.getAsInt();
+    }
+
+    @Benchmark
+    public int editAndIsGameWon(){
+        return editAndIsGameWon.getAsInt();
+    }
+
+    @Benchmark
+    public int mistakeHighlightPass(){
+        return mistakeHighlightPass.getAsInt();
+    }
+
+    @Benchmark
+    public int allCagesCorrect(){
+        return allCagesCorrect.getAsInt();
+    }
+
+    @Benchmark
+    public int cageAdjacency(){
+        return cageAdjacency.getAsInt();
+    }
+
+    @Benchmark
+    public int loadPuzzle(){
+        return loadPuzzle.getAsInt();
+    }
+}